@@ -0,0 +1,344 @@
+/********************************************************************************************************
+ * File:  EmbeddedACMEMedicalService.java
+ * Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Shariar (Shawn) Emami
+ *
+ */
+package acmemedical.ejb;
+
+import static acmemedical.utility.MyConstants.DEFAULT_IMPORT_HASH_THREADS;
+import static acmemedical.utility.MyConstants.DEFAULT_NAME_FILTER_EXPECTED_ENTRIES;
+import static acmemedical.utility.MyConstants.DEFAULT_NAME_FILTER_FALSE_POSITIVE_RATE;
+import static acmemedical.utility.MyConstants.DEFAULT_PROVISIONING_WORKERS;
+import static acmemedical.utility.MyConstants.DEFAULT_STREAM_FETCH_SIZE;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.Persistence;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.Session;
+import org.glassfish.soteria.identitystores.hash.Pbkdf2PasswordHashImpl;
+
+import acmemedical.entity.Physician;
+
+/**
+ * {@link ACMEMedicalService} outside the container, on the <code>acmemedical-embedded-PU</code> persistence
+ * unit - the same entities, scripts and Hibernate settings as <code>acmemedical-PU</code>, but on an in-memory
+ * H2 database in MySQL mode.  Boots in seconds, for service-level performance regressions and benchmarks:
+ * <pre>
+ * try (EmbeddedACMEMedicalService embedded = new EmbeddedACMEMedicalService()) {
+ *     List&lt;Physician&gt; physicians = embedded.call(service -&gt; service.getAllPhysicians());
+ * }
+ * </pre>
+ * Stands in for the few container services the bean uses:  every {@link #call(Function)} is one
+ * resource-local transaction (a nested call joins it, like REQUIRED), the bean's EntityManager is a proxy to
+ * that transaction's EntityManager, and its TransactionSynchronizationRegistry runs the registered
+ * synchronizations (write locks, name filter updates) around the commit or rollback.  A
+ * {@link UserProvisioningWorker} on plain daemon threads computes the password hashes of
+ * {@link #importPhysicians(List, int)}; its provisioning queue is not drained.
+ * <p>
+ * Not a container:  no security and no interceptors - a method's own <code>@Transactional</code> and
+ * <code>@RolesAllowed</code> are ignored, and it is only usable within {@link #call(Function)}.
+ */
+public class EmbeddedACMEMedicalService implements AutoCloseable {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    public static final String EMBEDDED_PU_NAME = "acmemedical-embedded-PU";
+    public static final String JDBC_URL_PROPNAME = "jakarta.persistence.jdbc.url";
+    /**
+     * The URL in persistence.xml, with the database name left open:  DB_CLOSE_DELAY=-1 keeps an in-memory
+     * database for as long as the JVM runs, so each instance gets a database of its own
+     */
+    public static final String IN_MEMORY_JDBC_URL_FORMAT = "jdbc:h2:mem:acmemedical-%d;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+        + "DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS acmemedical\\;SET SCHEMA acmemedical";
+
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    /**
+     * What the container keeps per JTA transaction
+     */
+    protected static class Transaction {
+        protected final EntityManager em;
+        protected final List<Synchronization> synchronizations = new ArrayList<>();
+        protected final Map<Object, Object> resources = new HashMap<>();
+        protected boolean rollbackOnly;
+
+        protected Transaction(EntityManager em) {
+            this.em = em;
+        }
+    }
+
+    protected final ThreadLocal<Transaction> current = new ThreadLocal<>();
+    protected final EntityManagerFactory emf;
+    protected final ACMEMedicalService service = new ACMEMedicalService();
+    protected final UserProvisioningWorker provisioningWorker = new UserProvisioningWorker();
+    protected final ExecutorService hashExecutor;
+
+    public EmbeddedACMEMedicalService() {
+        this(Map.of());
+    }
+
+    /**
+     * @param overrides - persistence unit properties to change, e.g. the JDBC URL of a file-based H2 database
+     */
+    public EmbeddedACMEMedicalService(Map<String, Object> overrides) {
+        Map<String, Object> properties = new HashMap<>(overrides);
+        properties.putIfAbsent(JDBC_URL_PROPNAME, String.format(IN_MEMORY_JDBC_URL_FORMAT, INSTANCES.incrementAndGet()));
+        emf = Persistence.createEntityManagerFactory(EMBEDDED_PU_NAME, properties);
+        EntityManager em = (EntityManager) Proxy.newProxyInstance(EntityManager.class.getClassLoader(),
+            new Class<?>[] {EntityManager.class}, (proxy, method, args) -> {
+                if (method.getDeclaringClass() == Object.class) {
+                    return method.getName().equals("equals") ? proxy == args[0]
+                        : method.getName().equals("hashCode") ? System.identityHashCode(proxy) : "EmbeddedEntityManager";
+                }
+                try {
+                    return method.invoke(currentTransaction().em, args);
+                }
+                catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+
+        UniqueNameFilters nameFilters = new UniqueNameFilters();
+        nameFilters.em = em;
+        nameFilters.expectedEntries = Integer.parseInt(DEFAULT_NAME_FILTER_EXPECTED_ENTRIES);
+        nameFilters.falsePositiveRate = Double.parseDouble(DEFAULT_NAME_FILTER_FALSE_POSITIVE_RATE);
+
+        service.em = em;
+        service.tsr = new Registry();
+        service.nameFilters = nameFilters;
+        service.pbAndjPasswordHash = new Pbkdf2PasswordHashImpl();
+        service.streamFetchSize = Integer.parseInt(DEFAULT_STREAM_FETCH_SIZE);
+        service.initPasswordHash();
+        run(s -> nameFilters.init());
+
+        ManagedThreadFactory threadFactory = task -> {
+            Thread thread = new Thread(task, "embedded-provisioning");
+            thread.setDaemon(true);
+            return thread;
+        };
+        hashExecutor = Executors.newCachedThreadPool(threadFactory);
+        provisioningWorker.service = service;
+        provisioningWorker.pbAndjPasswordHash = new Pbkdf2PasswordHashImpl();
+        provisioningWorker.threadFactory = threadFactory;
+        provisioningWorker.hashExecutor = (ManagedExecutorService) Proxy.newProxyInstance(
+            ManagedExecutorService.class.getClassLoader(), new Class<?>[] {ManagedExecutorService.class},
+            (proxy, method, args) -> {
+                if (method.getDeclaringClass() == Object.class) {
+                    return method.getName().equals("equals") ? proxy == args[0]
+                        : method.getName().equals("hashCode") ? System.identityHashCode(proxy) : "EmbeddedManagedExecutorService";
+                }
+                try {
+                    return method.invoke(hashExecutor, args);
+                }
+                catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        provisioningWorker.workerCount = Integer.parseInt(DEFAULT_PROVISIONING_WORKERS);
+        provisioningWorker.importHashThreads = Integer.parseInt(DEFAULT_IMPORT_HASH_THREADS);
+        provisioningWorker.init();
+    }
+
+    /**
+     * @param work - what to do with the service, in one transaction
+     * @return result of work, once its transaction has committed
+     */
+    public <T> T call(Function<ACMEMedicalService, T> work) {
+        if (current.get() != null) {
+            return work.apply(service);
+        }
+        Transaction tx = new Transaction(emf.createEntityManager());
+        EntityTransaction entityTransaction = tx.em.getTransaction();
+        current.set(tx);
+        int status = Status.STATUS_ROLLEDBACK;
+        try {
+            entityTransaction.begin();
+            T result = work.apply(service);
+            if (!tx.rollbackOnly) {
+                tx.synchronizations.forEach(Synchronization::beforeCompletion);
+                entityTransaction.commit();
+                status = Status.STATUS_COMMITTED;
+            }
+            return result;
+        }
+        finally {
+            try {
+                if (entityTransaction.isActive()) {
+                    entityTransaction.rollback();
+                }
+                tx.em.close();
+            }
+            finally {
+                current.remove();
+                for (Synchronization synchronization : tx.synchronizations) {
+                    synchronization.afterCompletion(status);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param work - what to do with the service, in one transaction
+     */
+    public void run(Consumer<ACMEMedicalService> work) {
+        call(s -> {
+            work.accept(s);
+            return null;
+        });
+    }
+
+    /**
+     * One chunk of a bulk import, as <code>POST /physician/import</code> does it:  passwords are hashed outside of
+     * any transaction, only for the physicians that pass validation, then the chunk is inserted in one transaction
+     *
+     * @param physicians - the chunk
+     * @param firstRow - position of the chunk's first physician in the whole import
+     * @return one result per physician, in the same order
+     */
+    public List<PhysicianImportResult> importPhysicians(List<Physician> physicians, int firstRow) {
+        PhysicianImportResult[] rejected = service.validateImport(physicians, firstRow);
+        int valid = 0;
+        for (PhysicianImportResult result : rejected) {
+            if (result == null) {
+                valid++;
+            }
+        }
+        List<String> hashes = provisioningWorker.generateDefaultPasswordHashes(valid);
+        List<String> pwHashes = new ArrayList<>(physicians.size());
+        int next = 0;
+        for (PhysicianImportResult result : rejected) {
+            pwHashes.add(result == null ? hashes.get(next++) : null);
+        }
+        return call(s -> s.importPhysicians(physicians, pwHashes, firstRow));
+    }
+
+    public UserProvisioningWorker getProvisioningWorker() {
+        return provisioningWorker;
+    }
+
+    public EntityManagerFactory getEntityManagerFactory() {
+        return emf;
+    }
+
+    /**
+     * Shut the database down - an in-memory one is dropped - and close the EntityManagerFactory
+     */
+    @Override
+    public void close() {
+        provisioningWorker.shutdown();
+        hashExecutor.shutdown();
+        try {
+            EntityManager em = emf.createEntityManager();
+            try {
+                em.unwrap(Session.class).doWork(connection -> {
+                    try (Statement shutdown = connection.createStatement()) {
+                        shutdown.execute("SHUTDOWN");
+                    }
+                });
+            }
+            finally {
+                em.close();
+            }
+        }
+        catch (RuntimeException e) {
+            LOG.warn("shutting down the {} database failed: {}", EMBEDDED_PU_NAME, e.toString());
+        }
+        finally {
+            emf.close();
+        }
+    }
+
+    protected Transaction currentTransaction() {
+        Transaction tx = current.get();
+        if (tx == null) {
+            throw new IllegalStateException("ACMEMedicalService is only usable within EmbeddedACMEMedicalService.call");
+        }
+        return tx;
+    }
+
+    /**
+     * Registry of the transaction of the calling thread, as far as ACMEMedicalService uses it
+     */
+    protected class Registry implements TransactionSynchronizationRegistry {
+
+        @Override
+        public Object getTransactionKey() {
+            return current.get();
+        }
+
+        @Override
+        public void putResource(Object key, Object value) {
+            currentTransaction().resources.put(key, value);
+        }
+
+        @Override
+        public Object getResource(Object key) {
+            return currentTransaction().resources.get(key);
+        }
+
+        @Override
+        public void registerInterposedSynchronization(Synchronization sync) {
+            currentTransaction().synchronizations.add(sync);
+        }
+
+        @Override
+        public int getTransactionStatus() {
+            Transaction tx = current.get();
+            if (tx == null) {
+                return Status.STATUS_NO_TRANSACTION;
+            }
+            return tx.rollbackOnly ? Status.STATUS_MARKED_ROLLBACK : Status.STATUS_ACTIVE;
+        }
+
+        @Override
+        public void setRollbackOnly() {
+            currentTransaction().rollbackOnly = true;
+        }
+
+        @Override
+        public boolean getRollbackOnly() {
+            return currentTransaction().rollbackOnly;
+        }
+    }
+
+    /**
+     * Smoke run:  boot, read the sample data back, report how long it took
+     */
+    public static void main(String[] args) {
+        long start = System.nanoTime();
+        try (EmbeddedACMEMedicalService embedded = new EmbeddedACMEMedicalService()) {
+            long booted = System.nanoTime();
+            int physicians = embedded.call(service -> service.getAllPhysicians().size());
+            int medicalSchools = embedded.call(service -> service.getAllMedicalSchools().size());
+            LOG.info("{} booted in {} ms, {} physicians and {} medical schools read in {} ms", EMBEDDED_PU_NAME,
+                TimeUnit.NANOSECONDS.toMillis(booted - start), physicians, medicalSchools,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - booted));
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/********************************************************************************************************
+ * File:  JsonSerializationBenchmark.java
+ * Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Shariar (Shawn) Emami
+ *
+ */
+package acmemedical.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import acmemedical.entity.MedicalCertificate;
+import acmemedical.entity.MedicalSchool;
+import acmemedical.entity.MedicalTraining;
+import acmemedical.entity.Medicine;
+import acmemedical.entity.Patient;
+import acmemedical.entity.Physician;
+import acmemedical.entity.PojoBase;
+import acmemedical.entity.Prescription;
+import acmemedical.entity.PrescriptionPK;
+import acmemedical.entity.PrivateSchool;
+import acmemedical.entity.PublicSchool;
+import acmemedical.entity.SecurityRole;
+import acmemedical.entity.SecurityUser;
+import acmemedical.rest.resource.HttpErrorResponse;
+
+/**
+ * Cost of writing this application's JSON with the ObjectMapper the REST layer uses
+ * ({@link ConfigureJacksonObjectMapper}, in both of its modes).  Run with <code>-prof gc</code> (the jmh
+ * profile does) to get allocation per op next to throughput.
+ * <p>
+ * Graphs are built forward only (physician to prescriptions, school to trainings, ...):  whether back
+ * references are written is up to the entities' JSON mapping, not something to measure here.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    // JAX-RS writes straight to the response stream, so do the same (minus the I/O)
+    private static final OutputStream SINK = OutputStream.nullOutputStream();
+
+    @State(Scope.Benchmark)
+    public static class Mapper {
+        // jackson-optimized off and on; passed in, there is no MicroProfile Config implementation outside the container
+        @Param({"false", "true"})
+        public boolean optimized;
+
+        protected ObjectMapper objectMapper;
+
+        @Setup
+        public void setUp() {
+            objectMapper = new ConfigureJacksonObjectMapper(optimized).getContext(Object.class);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class EntityGraphs {
+        // number of prescriptions and certificates per physician, trainings per school
+        @Param({"0", "10", "100"})
+        public int size;
+
+        protected Physician physician;
+        protected MedicalSchool publicSchool;
+        protected MedicalSchool privateSchool;
+
+        @Setup
+        public void setUp() {
+            physician = newPhysician(1, size);
+            publicSchool = newMedicalSchool(new PublicSchool(), 1, size);
+            privateSchool = newMedicalSchool(new PrivateSchool(), 2, size);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SmallObjects {
+        protected SecurityUser user;
+        protected HttpErrorResponse error;
+
+        @Setup
+        public void setUp() {
+            user = new SecurityUser();
+            user.setId(1);
+            user.setUsername("cst8277");
+            user.setPwHash("PBKDF2WithHmacSHA256:2048:c2FsdHNhbHRzYWx0c2FsdHNhbHRzYWx0c2FsdHNhbHQ=:aGFzaGhhc2hoYXNoaGFzaGhhc2hoYXNoaGFzaGhhc2g=");
+            Set<SecurityRole> roles = new HashSet<>();
+            roles.add(newRole(1, "ADMIN_ROLE", user));
+            roles.add(newRole(2, "USER_ROLE", user));
+            user.setRoles(roles);
+            error = new HttpErrorResponse(404, "Not Found");
+        }
+    }
+
+    @Benchmark
+    public void physicianWithPrescriptionsAndCertificates(Mapper mapper, EntityGraphs graphs) throws IOException {
+        mapper.objectMapper.writeValue(SINK, graphs.physician);
+    }
+
+    @Benchmark
+    public void publicSchoolWithTrainings(Mapper mapper, EntityGraphs graphs) throws IOException {
+        mapper.objectMapper.writeValue(SINK, graphs.publicSchool);
+    }
+
+    @Benchmark
+    public void privateSchoolWithTrainings(Mapper mapper, EntityGraphs graphs) throws IOException {
+        mapper.objectMapper.writeValue(SINK, graphs.privateSchool);
+    }
+
+    // roles go through SecurityRoleSerializer, which copies each role before writing it
+    @Benchmark
+    public void securityUserWithRoles(Mapper mapper, SmallObjects objects) throws IOException {
+        mapper.objectMapper.writeValue(SINK, objects.user);
+    }
+
+    @Benchmark
+    public void httpErrorResponse(Mapper mapper, SmallObjects objects) throws IOException {
+        mapper.objectMapper.writeValue(SINK, objects.error);
+    }
+
+    protected static Physician newPhysician(int id, int size) {
+        Physician physician = new Physician();
+        stamp(physician, id);
+        physician.setFullName("Teddy", "Yap");
+        Set<Prescription> prescriptions = new HashSet<>();
+        Set<MedicalCertificate> certificates = new HashSet<>();
+        for (int i = 1; i <= size; i++) {
+            Patient patient = new Patient("Charles", "Xavier", 1963, "1407 Graymalkin Lane", 178, 80, (byte) 0);
+            stamp(patient, i);
+            Medicine medicine = new Medicine("Tylenol", "Johnson & Johnson", "500 mg every 4 hours", null);
+            stamp(medicine, i);
+            Prescription prescription = new Prescription();
+            prescription.setId(new PrescriptionPK(id, i));
+            prescription.setPatient(patient);
+            prescription.setMedicine(medicine);
+            prescription.setNumberOfRefills(2);
+            prescription.setPrescriptionInformation("Take with food");
+            prescriptions.add(prescription);
+
+            MedicalCertificate certificate = new MedicalCertificate(newTraining(i), null, (byte) 1);
+            stamp(certificate, i);
+            certificates.add(certificate);
+        }
+        physician.setPrescriptions(prescriptions);
+        physician.setMedicalCertificates(certificates);
+        return physician;
+    }
+
+    protected static MedicalSchool newMedicalSchool(MedicalSchool school, int id, int size) {
+        stamp(school, id);
+        school.setName("University of Ottawa " + id);
+        Set<MedicalTraining> trainings = new HashSet<>();
+        for (int i = 1; i <= size; i++) {
+            trainings.add(newTraining(i));
+        }
+        school.setMedicalTrainings(trainings);
+        return school;
+    }
+
+    protected static MedicalTraining newTraining(int id) {
+        MedicalTraining training = new MedicalTraining();
+        stamp(training, id);
+        training.getDurationAndStatus().setDurationAndStatus(LocalDateTime.of(2020, 9, 1, 0, 0),
+            LocalDateTime.of(2024, 6, 30, 0, 0), "+");
+        return training;
+    }
+
+    protected static SecurityRole newRole(int id, String name, SecurityUser user) {
+        SecurityRole role = new SecurityRole();
+        role.setId(id);
+        role.setRoleName(name);
+        role.addUserToRole(user);
+        return role;
+    }
+
+    protected static void stamp(PojoBase entity, int id) {
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 12, 0);
+        entity.setId(id);
+        entity.setVersion(1);
+        entity.setCreated(now);
+        entity.setUpdated(now);
+    }
+}
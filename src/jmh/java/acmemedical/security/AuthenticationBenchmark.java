@@ -0,0 +1,220 @@
+/********************************************************************************************************
+ * File:  AuthenticationBenchmark.java
+ * Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Mike Norman
+ *
+ */
+package acmemedical.security;
+
+import static acmemedical.utility.MyConstants.ADMIN_ROLE;
+import static acmemedical.utility.MyConstants.DEFAULT_KEY_SIZE;
+import static acmemedical.utility.MyConstants.DEFAULT_PROPERTY_ALGORITHM;
+import static acmemedical.utility.MyConstants.DEFAULT_PROPERTY_ITERATIONS;
+import static acmemedical.utility.MyConstants.DEFAULT_SALT_SIZE;
+import static acmemedical.utility.MyConstants.PROPERTY_ALGORITHM;
+import static acmemedical.utility.MyConstants.PROPERTY_ITERATIONS;
+import static acmemedical.utility.MyConstants.PROPERTY_KEY_SIZE;
+import static acmemedical.utility.MyConstants.PROPERTY_SALT_SIZE;
+import static acmemedical.utility.MyConstants.USER_ROLE;
+import static jakarta.servlet.http.HttpServletRequest.BASIC_AUTH;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.security.enterprise.credential.UsernamePasswordCredential;
+import jakarta.security.enterprise.identitystore.CredentialValidationResult;
+import jakarta.security.enterprise.identitystore.Pbkdf2PasswordHash;
+
+import org.glassfish.soteria.identitystores.hash.Pbkdf2PasswordHashImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import acmemedical.entity.SecurityRole;
+import acmemedical.entity.SecurityUser;
+
+/**
+ * CPU and allocation (<code>-prof gc</code>) per authenticated request, one step of the hot path at a time:
+ * <ul>
+ * <li>Basic header parsing in {@link CustomAuthenticationMechanism}</li>
+ * <li>Bearer token check ({@link BearerTokenService})</li>
+ * <li>{@link CustomIdentityStore#validate} with a verified-credential cache hit, and with a miss (lookup
+ * plus PBKDF2) - the database is replaced by an in-memory {@link CustomIdentityStoreJPAHelper}</li>
+ * <li>PBKDF2 verify alone, for every algorithm and iteration count the identity store discusses</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthenticationBenchmark {
+
+    private static final String USERNAME = "admin";
+    private static final String PASSWORD = "admin";
+
+    /**
+     * Stand-in for the database:  always finds the same user, with its roles
+     */
+    protected static class InMemoryJPAHelper extends CustomIdentityStoreJPAHelper {
+        protected final SecurityUser user;
+
+        protected InMemoryJPAHelper(SecurityUser user) {
+            this.user = user;
+        }
+
+        @Override
+        public SecurityUser findUserByName(String username) {
+            return user.getUsername().equals(username) ? user : null;
+        }
+
+        @Override
+        public SecurityUser findUserWithRolesByName(String username) {
+            return findUserByName(username);
+        }
+    }
+
+    /**
+     * Cache that never hits, so every validate() goes to the helper and PBKDF2
+     */
+    protected static class NoVerifiedCredentialCache extends VerifiedCredentialCache {
+        @Override
+        public CredentialValidationResult get(String username, String password) {
+            return null;
+        }
+
+        @Override
+        public void put(String username, String password, CredentialValidationResult result, long generation) {
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class AuthState {
+        protected String basicAuthHeader;
+        protected String bearerToken;
+        protected UsernamePasswordCredential credential;
+        protected BearerTokenService tokenService;
+        protected CustomIdentityStore cachingStore;
+        protected CustomIdentityStore uncachedStore;
+
+        @Setup
+        public void setUp() {
+            basicAuthHeader = BASIC_AUTH + " "
+                + Base64.getEncoder().encodeToString((USERNAME + ":" + PASSWORD).getBytes(StandardCharsets.UTF_8));
+            credential = new UsernamePasswordCredential(USERNAME, PASSWORD);
+
+            Pbkdf2PasswordHash passwordHash = newPasswordHash(DEFAULT_PROPERTY_ALGORITHM, DEFAULT_PROPERTY_ITERATIONS);
+            SecurityUser user = new SecurityUser();
+            user.setId(1);
+            user.setUsername(USERNAME);
+            user.setPwHash(passwordHash.generate(PASSWORD.toCharArray()));
+            Set<SecurityRole> roles = new HashSet<>();
+            roles.add(newRole(1, ADMIN_ROLE));
+            roles.add(newRole(2, USER_ROLE));
+            user.setRoles(roles);
+            InMemoryJPAHelper jpaHelper = new InMemoryJPAHelper(user);
+
+            VerifiedCredentialCache credentialCache = new VerifiedCredentialCache();
+            credentialCache.ttlSeconds = TimeUnit.DAYS.toSeconds(1);
+            credentialCache.maxEntries = 10;
+            credentialCache.init();
+            cachingStore = newIdentityStore(jpaHelper, passwordHash, credentialCache);
+            uncachedStore = newIdentityStore(jpaHelper, passwordHash, new NoVerifiedCredentialCache());
+            // warm the cache:  validate() caches VALID results
+            cachingStore.validate(credential);
+
+            tokenService = new BearerTokenService();
+            tokenService.configuredSigningKey = Optional.empty();
+            tokenService.ttlSeconds = TimeUnit.DAYS.toSeconds(1);
+            tokenService.init();
+            bearerToken = tokenService.issue(AuthenticatedUser.of(user));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Pbkdf2State {
+        // Algorithms and iteration counts listed in CustomIdentityStore
+        @Param({"PBKDF2WithHmacSHA224", "PBKDF2WithHmacSHA256", "PBKDF2WithHmacSHA384", "PBKDF2WithHmacSHA512"})
+        public String algorithm;
+
+        @Param({"1024", "2048", "20000", "50000"})
+        public String iterations;
+
+        protected Pbkdf2PasswordHash passwordHash;
+        protected String pwHash;
+
+        @Setup
+        public void setUp() {
+            passwordHash = newPasswordHash(algorithm, iterations);
+            pwHash = passwordHash.generate(PASSWORD.toCharArray());
+        }
+    }
+
+    @Benchmark
+    public String[] parseBasicAuthHeader(AuthState state) {
+        return CustomAuthenticationMechanism.parseBasicAuth(state.basicAuthHeader);
+    }
+
+    @Benchmark
+    public CredentialValidationResult validateBearerToken(AuthState state) {
+        return state.tokenService.validate(state.bearerToken);
+    }
+
+    @Benchmark
+    public CredentialValidationResult validateCachedCredential(AuthState state) {
+        return state.cachingStore.validate(state.credential);
+    }
+
+    @Benchmark
+    public CredentialValidationResult validateUncachedCredential(AuthState state) {
+        return state.uncachedStore.validate(state.credential);
+    }
+
+    @Benchmark
+    public boolean pbkdf2Verify(Pbkdf2State state) {
+        return state.passwordHash.verify(PASSWORD.toCharArray(), state.pwHash);
+    }
+
+    protected static Pbkdf2PasswordHash newPasswordHash(String algorithm, String iterations) {
+        Pbkdf2PasswordHash passwordHash = new Pbkdf2PasswordHashImpl();
+        Map<String, String> pbAndjProperties = new HashMap<>();
+        pbAndjProperties.put(PROPERTY_ALGORITHM, algorithm);
+        pbAndjProperties.put(PROPERTY_ITERATIONS, iterations);
+        pbAndjProperties.put(PROPERTY_SALT_SIZE, DEFAULT_SALT_SIZE);
+        pbAndjProperties.put(PROPERTY_KEY_SIZE, DEFAULT_KEY_SIZE);
+        passwordHash.initialize(pbAndjProperties);
+        return passwordHash;
+    }
+
+    protected static CustomIdentityStore newIdentityStore(CustomIdentityStoreJPAHelper jpaHelper,
+        Pbkdf2PasswordHash passwordHash, VerifiedCredentialCache credentialCache) {
+        CustomIdentityStore store = new CustomIdentityStore();
+        store.jpaHelper = jpaHelper;
+        store.pbAndjPasswordHash = passwordHash;
+        store.credentialCache = credentialCache;
+        return store;
+    }
+
+    protected static SecurityRole newRole(int id, String name) {
+        SecurityRole role = new SecurityRole();
+        role.setId(id);
+        role.setRoleName(name);
+        return role;
+    }
+}
@@ -0,0 +1,401 @@
+/********************************************************************************************************
+ * File:  LoadGenerator.java
+ * Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Mike Norman
+ *
+ */
+package acmemedical.loadtest;
+
+import static acmemedical.utility.MyConstants.APPLICATION_API_VERSION;
+import static acmemedical.utility.MyConstants.APPLICATION_CONTEXT_ROOT;
+import static acmemedical.utility.MyConstants.DEFAULT_ADMIN_USER;
+import static acmemedical.utility.MyConstants.DEFAULT_ADMIN_USER_PASSWORD;
+import static acmemedical.utility.MyConstants.DEFAULT_USER;
+import static acmemedical.utility.MyConstants.DEFAULT_USER_PASSWORD;
+import static acmemedical.utility.MyConstants.MEDICAL_SCHOOL_RESOURCE_NAME;
+import static acmemedical.utility.MyConstants.MEDICAL_TRAINING_RESOURCE_NAME;
+import static acmemedical.utility.MyConstants.MEDICINE_SUBRESOURCE_NAME;
+import static acmemedical.utility.MyConstants.PHYSICIAN_RESOURCE_NAME;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.ws.rs.client.Client;
+import jakarta.ws.rs.client.ClientBuilder;
+import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.client.WebTarget;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import org.HdrHistogram.Histogram;
+import org.glassfish.jersey.client.authentication.HttpAuthenticationFeature;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Closed-loop load generator for a running deployment:  <code>load.threads</code> workers each pick a
+ * weighted-random {@link Scenario}, send it and wait for the response, for <code>load.duration</code> seconds
+ * after <code>load.warmup</code> seconds whose results are discarded.
+ * <p>
+ * Latency is recorded per scenario in an HDR histogram (microseconds, 3 significant digits).  The report
+ * (<code>load.output</code>) is JSON with throughput, error count and p50/p90/p99/p999/max per scenario plus
+ * the compressed, base64-encoded histogram itself, so runs of two builds can be diffed - or the histograms
+ * decoded and compared/merged with HdrHistogram's tools.
+ * <p>
+ * Being closed-loop, a slow response also delays the next request of its worker (coordinated omission):
+ * compare percentiles between runs at the same thread count, not against an open-loop arrival rate.
+ * <p>
+ * Run with:  <code>mvn -Ploadtest test-compile exec:java [-Dload.threads=16 -Dload.duration=60 ...]</code>
+ */
+public class LoadGenerator {
+
+    public static final String BASE_URI_PROPNAME = "load.baseUri";
+    public static final String ADMIN_USER_PROPNAME = "load.adminUser";
+    public static final String ADMIN_PASSWORD_PROPNAME = "load.adminPassword";
+    public static final String USER_PROPNAME = "load.user";
+    public static final String USER_PASSWORD_PROPNAME = "load.userPassword";
+    // physician the USER_ROLE credentials belong to - a user may only read its own physician
+    public static final String USER_PHYSICIAN_ID_PROPNAME = "load.userPhysicianId";
+    public static final String PATIENT_ID_PROPNAME = "load.patientId";
+    public static final String SCHOOL_TYPE_PROPNAME = "load.schoolType";
+    public static final String THREADS_PROPNAME = "load.threads";
+    public static final String WARMUP_PROPNAME = "load.warmup";
+    public static final String DURATION_PROPNAME = "load.duration";
+    // e.g. listPhysicians=40,getPhysician=30,addMedicalSchool=10,addTraining=10,setMedicine=10
+    public static final String WEIGHTS_PROPNAME = "load.weights";
+    public static final String OUTPUT_PROPNAME = "load.output";
+
+    static final String DEFAULT_BASE_URI = "http://localhost:8080" + APPLICATION_CONTEXT_ROOT + APPLICATION_API_VERSION;
+    static final String DEFAULT_SCHOOL_TYPE = "public_medical_school";
+    static final String DEFAULT_OUTPUT = "target/loadtest-results.json";
+
+    // 1 µs .. 1 min, anything slower is clamped to the maximum
+    static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    static final int SIGNIFICANT_DIGITS = 3;
+
+    public enum Scenario {
+        listPhysicians(40),
+        getPhysician(30),
+        addMedicalSchool(10),
+        addTraining(10),
+        setMedicine(10);
+
+        final int defaultWeight;
+
+        Scenario(int defaultWeight) {
+            this.defaultWeight = defaultWeight;
+        }
+    }
+
+    protected final ObjectMapper mapper = new ObjectMapper();
+    protected final Client client = ClientBuilder.newClient();
+    protected final WebTarget adminTarget;
+    protected final WebTarget userTarget;
+    protected final int userPhysicianId;
+    protected final int patientId;
+    protected final String schoolType;
+    protected final Scenario[] scenarios = Scenario.values();
+    protected final int[] cumulativeWeights;
+    // unique suffix for the names of the schools this run creates, so reruns never collide with a UNIQUE name
+    protected final String runId = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    protected final AtomicLong sequence = new AtomicLong();
+
+    // school the addTraining scenario adds to, created before the run
+    protected int trainingSchoolId;
+
+    public LoadGenerator() {
+        String baseUri = System.getProperty(BASE_URI_PROPNAME, DEFAULT_BASE_URI);
+        // register() changes the target it is called on, so each set of credentials gets a target of its own
+        adminTarget = client.target(baseUri).register(HttpAuthenticationFeature.basic(
+            System.getProperty(ADMIN_USER_PROPNAME, DEFAULT_ADMIN_USER),
+            System.getProperty(ADMIN_PASSWORD_PROPNAME, DEFAULT_ADMIN_USER_PASSWORD)));
+        userTarget = client.target(baseUri).register(HttpAuthenticationFeature.basic(
+            System.getProperty(USER_PROPNAME, DEFAULT_USER),
+            System.getProperty(USER_PASSWORD_PROPNAME, DEFAULT_USER_PASSWORD)));
+        userPhysicianId = Integer.getInteger(USER_PHYSICIAN_ID_PROPNAME, 1);
+        patientId = Integer.getInteger(PATIENT_ID_PROPNAME, 1);
+        schoolType = System.getProperty(SCHOOL_TYPE_PROPNAME, DEFAULT_SCHOOL_TYPE);
+        cumulativeWeights = parseWeights(System.getProperty(WEIGHTS_PROPNAME));
+        mapper.enable(SerializationFeature.INDENT_OUTPUT);
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadGenerator generator = new LoadGenerator();
+        try {
+            generator.run(Integer.getInteger(THREADS_PROPNAME, 8), Integer.getInteger(WARMUP_PROPNAME, 10),
+                Integer.getInteger(DURATION_PROPNAME, 60), new File(System.getProperty(OUTPUT_PROPNAME, DEFAULT_OUTPUT)));
+        }
+        finally {
+            generator.client.close();
+        }
+    }
+
+    protected int[] parseWeights(String weights) {
+        Map<Scenario, Integer> byScenario = new EnumMap<>(Scenario.class);
+        for (Scenario scenario : scenarios) {
+            byScenario.put(scenario, scenario.defaultWeight);
+        }
+        if (weights != null && !weights.isBlank()) {
+            for (String weight : weights.split(",")) {
+                String[] nameAndWeight = weight.split("=");
+                if (nameAndWeight.length != 2) {
+                    throw new IllegalArgumentException("Weight '" + weight + "' is not of the form scenario=weight");
+                }
+                byScenario.put(Scenario.valueOf(nameAndWeight[0].strip()), Integer.valueOf(nameAndWeight[1].strip()));
+            }
+        }
+        int[] cumulative = new int[scenarios.length];
+        int total = 0;
+        for (Scenario scenario : scenarios) {
+            total += Math.max(0, byScenario.get(scenario));
+            cumulative[scenario.ordinal()] = total;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("At least one scenario needs a positive weight");
+        }
+        return cumulative;
+    }
+
+    protected Scenario nextScenario() {
+        int pick = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (Scenario scenario : scenarios) {
+            if (pick < cumulativeWeights[scenario.ordinal()]) {
+                return scenario;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Per-worker results, merged once the run is over so recording never contends between workers
+     */
+    protected static class Results {
+        protected final Map<Scenario, Histogram> latencies = new EnumMap<>(Scenario.class);
+        protected final Map<Scenario, Long> errors = new EnumMap<>(Scenario.class);
+
+        protected Results() {
+            for (Scenario scenario : Scenario.values()) {
+                latencies.put(scenario, new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS));
+                errors.put(scenario, 0L);
+            }
+        }
+
+        protected void record(Scenario scenario, long micros, boolean ok) {
+            latencies.get(scenario).recordValue(Math.min(Math.max(1, micros), HIGHEST_TRACKABLE_MICROS));
+            if (!ok) {
+                errors.merge(scenario, 1L, Long::sum);
+            }
+        }
+
+        protected void add(Results other) {
+            for (Scenario scenario : Scenario.values()) {
+                latencies.get(scenario).add(other.latencies.get(scenario));
+                errors.merge(scenario, other.errors.get(scenario), Long::sum);
+            }
+        }
+    }
+
+    public void run(int threads, int warmupSeconds, int durationSeconds, File output) throws Exception {
+        trainingSchoolId = createMedicalSchool();
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long measureUntil = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        List<Future<Results>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(workers.submit(() -> work(measureFrom, measureUntil)));
+        }
+        Results total = new Results();
+        try {
+            for (Future<Results> future : futures) {
+                total.add(future.get());
+            }
+        }
+        finally {
+            workers.shutdownNow();
+        }
+        writeReport(total, threads, warmupSeconds, durationSeconds, output);
+    }
+
+    protected Results work(long measureFrom, long measureUntil) {
+        Results results = new Results();
+        long now;
+        while ((now = System.nanoTime()) < measureUntil) {
+            Scenario scenario = nextScenario();
+            boolean ok;
+            try {
+                ok = send(scenario);
+            }
+            catch (RuntimeException e) {
+                // connection refused/reset, timeout - counts as an error with the time it took to fail
+                ok = false;
+            }
+            long end = System.nanoTime();
+            if (now >= measureFrom) {
+                results.record(scenario, TimeUnit.NANOSECONDS.toMicros(end - now), ok);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @param scenario - request to send
+     * @return true if the response status was 2xx
+     */
+    protected boolean send(Scenario scenario) {
+        switch (scenario) {
+            case listPhysicians:
+                return successful(adminTarget.path(PHYSICIAN_RESOURCE_NAME)
+                    .request(MediaType.APPLICATION_JSON).get());
+            case getPhysician:
+                return successful(userTarget.path(PHYSICIAN_RESOURCE_NAME).path(Integer.toString(userPhysicianId))
+                    .request(MediaType.APPLICATION_JSON).get());
+            case addMedicalSchool:
+                return successful(postMedicalSchool());
+            case addTraining:
+                return successful(adminTarget.path(MEDICAL_SCHOOL_RESOURCE_NAME).path(Integer.toString(trainingSchoolId))
+                    .path(MEDICAL_TRAINING_RESOURCE_NAME)
+                    .request(MediaType.APPLICATION_JSON).post(Entity.json(newMedicalTraining())));
+            case setMedicine:
+                return successful(adminTarget.path(PHYSICIAN_RESOURCE_NAME).path(Integer.toString(userPhysicianId))
+                    .path("patient").path(Integer.toString(patientId)).path(MEDICINE_SUBRESOURCE_NAME)
+                    .request(MediaType.APPLICATION_JSON).put(Entity.json(newMedicine())));
+            default:
+                throw new IllegalArgumentException("Unknown scenario " + scenario);
+        }
+    }
+
+    protected static boolean successful(Response response) {
+        try {
+            // read (and discard) the body, the time to transfer it is part of the latency
+            response.readEntity(String.class);
+            return response.getStatusInfo().getFamily() == Response.Status.Family.SUCCESSFUL;
+        }
+        finally {
+            response.close();
+        }
+    }
+
+    protected int createMedicalSchool() throws IOException {
+        Response response = postMedicalSchool();
+        try {
+            String body = response.readEntity(String.class);
+            if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
+                throw new IllegalStateException("Creating the medical school for addTraining failed with "
+                    + response.getStatus() + ": " + body);
+            }
+            return mapper.readTree(body).get("id").asInt();
+        }
+        finally {
+            response.close();
+        }
+    }
+
+    protected Response postMedicalSchool() {
+        ObjectNode school = mapper.createObjectNode()
+            .put("entity-type", schoolType)
+            .put("name", "Load Test School " + runId + "-" + sequence.incrementAndGet());
+        return adminTarget.path(MEDICAL_SCHOOL_RESOURCE_NAME)
+            .request(MediaType.APPLICATION_JSON).post(Entity.json(school.toString()));
+    }
+
+    protected String newMedicalTraining() {
+        LocalDateTime start = LocalDateTime.now().withNano(0);
+        ObjectNode training = mapper.createObjectNode();
+        training.putObject("durationAndStatus")
+            .put("startDate", start.toString())
+            .put("endDate", start.plusYears(4).toString())
+            .put("active", 1);
+        return training.toString();
+    }
+
+    protected String newMedicine() {
+        return mapper.createObjectNode()
+            .put("drugName", "Load Test Drug " + sequence.incrementAndGet())
+            .put("manufacturerName", "ACME")
+            .put("dosageInformation", "1 tablet daily")
+            .toString();
+    }
+
+    protected void writeReport(Results results, int threads, int warmupSeconds, int durationSeconds, File output)
+        throws IOException {
+        ObjectNode report = mapper.createObjectNode()
+            .put("base-uri", System.getProperty(BASE_URI_PROPNAME, DEFAULT_BASE_URI))
+            .put("finished", Instant.now().toString())
+            .put("threads", threads)
+            .put("warmup-seconds", warmupSeconds)
+            .put("duration-seconds", durationSeconds);
+        ObjectNode weights = report.putObject("weights");
+        for (Scenario scenario : scenarios) {
+            int previous = scenario.ordinal() == 0 ? 0 : cumulativeWeights[scenario.ordinal() - 1];
+            weights.put(scenario.name(), cumulativeWeights[scenario.ordinal()] - previous);
+        }
+        Histogram all = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        long allErrors = 0;
+        ObjectNode endpoints = report.putObject("endpoints");
+        for (Scenario scenario : scenarios) {
+            Histogram histogram = results.latencies.get(scenario);
+            long errorCount = results.errors.get(scenario);
+            endpoints.set(scenario.name(), summarize(histogram, errorCount, durationSeconds));
+            all.add(histogram);
+            allErrors += errorCount;
+        }
+        report.set("total", summarize(all, allErrors, durationSeconds));
+
+        File parent = output.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        mapper.writeValue(output, report);
+        System.out.println(mapper.writeValueAsString(report.get("total")));
+        System.out.println("Report written to " + output.getAbsolutePath());
+    }
+
+    protected JsonNode summarize(Histogram histogram, long errorCount, int durationSeconds) {
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("p50", histogram.getValueAtPercentile(50.0));
+        latency.put("p90", histogram.getValueAtPercentile(90.0));
+        latency.put("p99", histogram.getValueAtPercentile(99.0));
+        latency.put("p999", histogram.getValueAtPercentile(99.9));
+        latency.put("max", histogram.getMaxValue());
+        latency.put("mean", Math.round(histogram.getMean()));
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", histogram.getTotalCount());
+        summary.put("errors", errorCount);
+        summary.put("throughput-per-second", durationSeconds == 0 ? 0.0 : (double) histogram.getTotalCount() / durationSeconds);
+        summary.put("latency-micros", latency);
+        summary.put("histogram", encode(histogram));
+        return mapper.valueToTree(summary);
+    }
+
+    // compressed V2 encoding, as read by Histogram.decodeFromCompressedByteBuffer and the HdrHistogram tools
+    protected static String encode(Histogram histogram) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        byte[] compressed = new byte[length];
+        buffer.flip();
+        buffer.get(compressed);
+        return Base64.getEncoder().encodeToString(compressed);
+    }
+}
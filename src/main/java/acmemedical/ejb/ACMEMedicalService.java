@@ -11,6 +11,7 @@ import static acmemedical.utility.MyConstants.DEFAULT_KEY_SIZE;
 import static acmemedical.utility.MyConstants.DEFAULT_PROPERTY_ALGORITHM;
 import static acmemedical.utility.MyConstants.DEFAULT_PROPERTY_ITERATIONS;
 import static acmemedical.utility.MyConstants.DEFAULT_SALT_SIZE;
+import static acmemedical.utility.MyConstants.DEFAULT_STREAM_FETCH_SIZE;
 import static acmemedical.utility.MyConstants.DEFAULT_USER_PASSWORD;
 import static acmemedical.utility.MyConstants.DEFAULT_USER_PREFIX;
 import static acmemedical.utility.MyConstants.PARAM1;
@@ -19,33 +20,84 @@ import static acmemedical.utility.MyConstants.PROPERTY_ITERATIONS;
 import static acmemedical.utility.MyConstants.PROPERTY_KEY_SIZE;
 import static acmemedical.utility.MyConstants.PROPERTY_SALT_SIZE;
 import static acmemedical.utility.MyConstants.PU_NAME;
+import static acmemedical.utility.MyConstants.STREAM_FETCH_SIZE_PROPNAME;
 import static acmemedical.utility.MyConstants.USER_ROLE;
 import static acmemedical.entity.Physician.ALL_PHYSICIANS_QUERY_NAME;
+import static acmemedical.entity.Physician.PHYSICIANS_PAGE_QUERY_NAME;
 import static acmemedical.entity.MedicalSchool.ALL_MEDICAL_SCHOOLS_QUERY_NAME;
+import static acmemedical.entity.MedicalSchool.MEDICAL_SCHOOLS_PAGE_QUERY_NAME;
 import static acmemedical.entity.MedicalSchool.IS_DUPLICATE_QUERY_NAME;
 import static acmemedical.entity.MedicalSchool.SPECIFIC_MEDICAL_SCHOOL_QUERY_NAME;
 
 import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
 import jakarta.ejb.Singleton;
 import jakarta.inject.Inject;
+import jakarta.persistence.Cache;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.NamedQuery;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import jakarta.persistence.metamodel.EntityType;
 import jakarta.security.enterprise.identitystore.Pbkdf2PasswordHash;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 import jakarta.transaction.Transactional;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jpa.QueryHints;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+
+import com.mysql.cj.conf.PropertyKey;
+import com.mysql.cj.conf.PropertySet;
+import com.mysql.cj.conf.RuntimeProperty;
+import com.mysql.cj.jdbc.JdbcConnection;
 
 import acmemedical.entity.MedicalTraining;
 import acmemedical.entity.Patient;
@@ -55,19 +107,61 @@ import acmemedical.entity.Prescription;
 import acmemedical.entity.PrescriptionPK;
 import acmemedical.entity.SecurityRole;
 import acmemedical.entity.SecurityUser;
+import acmemedical.entity.UserProvisioning;
 import acmemedical.entity.Physician;
+import acmemedical.entity.PojoBase;
 import acmemedical.entity.MedicalSchool;
 
 @SuppressWarnings("unused")
 
 /**
  * Stateless Singleton EJB Bean - ACMEMedicalService
+ * <p>
+ * The container's default for a Singleton is a single WRITE lock around every method, i.e. one request
+ * at a time per node.  This bean holds no mutable state of its own (the EntityManager is a thread-safe,
+ * transaction-scoped proxy), so reads run fully concurrently and writes only serialize per entity
+ * through {@link StripedLocks}.
  */
 @Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
 public class ACMEMedicalService implements Serializable {
     private static final long serialVersionUID = 1L;
     
     private static final Logger LOG = LogManager.getLogger();
+
+    private static final long FINGERPRINT_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FINGERPRINT_PRIME = 0x100000001b3L;
+
+    private static final int WRITE_LOCK_STRIPES = 64;
+
+    private static final int MAX_NAME_LENGTH = 50;
+    // security_user.username VARCHAR(100)
+    private static final int MAX_USERNAME_LENGTH = 100;
+    // MySQL's ER_DUP_ENTRY, and the SQLSTATE other databases use for a unique violation
+    private static final int MYSQL_DUPLICATE_ENTRY = 1062;
+    private static final String UNIQUE_VIOLATION_SQLSTATE = "23505";
+    private static final String ID_ATTRIBUTE = "id";
+    private static final String PHYSICIAN_ID_ATTRIBUTE = "physicianId";
+    private static final String PATIENT_ID_ATTRIBUTE = "patientId";
+    private static final String MEDICINE_ATTRIBUTE = "medicine";
+    // keys per query when loading by composite key, well below any driver or optimizer limit
+    private static final int KEY_CHUNK = 500;
+    private static final String IMPORT_PHYSICIAN_SQL =
+        "INSERT INTO physician (first_name, last_name, created, updated, version) VALUES (?, ?, ?, ?, 1)";
+    private static final String IMPORT_SECURITY_USER_SQL =
+        "INSERT INTO security_user (password_hash, username, physician_id) VALUES (?, ?, ?)";
+    private static final String IMPORT_USER_HAS_ROLE_SQL = "INSERT INTO user_has_role (user_id, role_id) VALUES (?, ?)";
+    private static final String IMPORT_USER_PROVISIONING_SQL =
+        "INSERT INTO user_provisioning (physician_id, status, attempts, created, updated) VALUES (?, ?, 0, ?, ?)";
+    
+    protected final transient StripedLocks writeLocks = new StripedLocks(WRITE_LOCK_STRIPES);
+
+    // medical school delete metrics (counted as executed, including transactions that later roll back)
+    protected final transient LongAdder schoolDeletes = new LongAdder();
+    protected final transient LongAdder bulkStatements = new LongAdder();
+    protected final transient LongAdder certificatesDetached = new LongAdder();
+    protected final transient LongAdder trainingsDeleted = new LongAdder();
+    protected final transient LongAdder schoolsDeleted = new LongAdder();
     
     @PersistenceContext(name = PU_NAME)
     protected EntityManager em;
@@ -75,6 +169,27 @@ public class ACMEMedicalService implements Serializable {
     @Inject
     protected Pbkdf2PasswordHash pbAndjPasswordHash;
 
+    @Resource
+    protected TransactionSynchronizationRegistry tsr;
+
+    @EJB
+    protected UniqueNameFilters nameFilters;
+
+    @Inject
+    @ConfigProperty(name = STREAM_FETCH_SIZE_PROPNAME, defaultValue = DEFAULT_STREAM_FETCH_SIZE)
+    protected int streamFetchSize;
+
+    // Pbkdf2PasswordHash is @Dependent (this bean has its own instance), configure it once rather than per call
+    @PostConstruct
+    protected void initPasswordHash() {
+        Map<String, String> pbAndjProperties = new HashMap<>();
+        pbAndjProperties.put(PROPERTY_ALGORITHM, DEFAULT_PROPERTY_ALGORITHM);
+        pbAndjProperties.put(PROPERTY_ITERATIONS, DEFAULT_PROPERTY_ITERATIONS);
+        pbAndjProperties.put(PROPERTY_SALT_SIZE, DEFAULT_SALT_SIZE);
+        pbAndjProperties.put(PROPERTY_KEY_SIZE, DEFAULT_KEY_SIZE);
+        pbAndjPasswordHash.initialize(pbAndjProperties);
+    }
+
     public List<Physician> getAllPhysicians() {
         CriteriaBuilder cb = em.getCriteriaBuilder();
         CriteriaQuery<Physician> cq = cb.createQuery(Physician.class);
@@ -82,59 +197,449 @@ public class ACMEMedicalService implements Serializable {
         return em.createQuery(cq).getResultList();
     }
 
+    public KeysetPage<Physician> getPhysiciansPage(int after, int limit) {
+        KeysetPage<Physician> page = getAll(Physician.class, PHYSICIANS_PAGE_QUERY_NAME, after, limit);
+        fetchGraphs(Physician.class, page.getItems(), Physician.DEFAULT_FETCH_GRAPHS);
+        return page;
+    }
+
     public Physician getPhysicianById(int id) {
         return em.find(Physician.class, id);
     }
 
+    /**
+     * @param id - id of physician
+     * @return strong entity tag of the physician's current representation, or null if there is no such physician
+     */
+    public String getPhysicianVersionTag(int id) {
+        return getVersionTag(Physician.VERSION_FINGERPRINT_QUERY_NAMES, id);
+    }
+
+    /**
+     * Persist a new physician and, in the same transaction, queue the creation of its SecurityUser
+     * (see {@link UserProvisioningWorker})
+     * 
+     * @param newPhysician - physician to persist
+     * @return persisted physician
+     */
     @Transactional
     public Physician persistPhysician(Physician newPhysician) {
         em.persist(newPhysician);
+        em.persist(new UserProvisioning(newPhysician.getId()));
         return newPhysician;
     }
 
     @Transactional
     public void buildUserForNewPhysician(Physician newPhysician) {
+        buildUserForNewPhysician(newPhysician, pbAndjPasswordHash.generate(DEFAULT_USER_PASSWORD.toCharArray()));
+    }
+
+    @Transactional
+    public void buildUserForNewPhysician(Physician newPhysician, String pwHash) {
+        writeLocks.lockUntilCompletion(tsr, Physician.class, newPhysician.getId());
         SecurityUser userForNewPhysician = new SecurityUser();
-        userForNewPhysician.setUsername(
-            DEFAULT_USER_PREFIX + "_" + newPhysician.getFirstName() + "." + newPhysician.getLastName());
-        Map<String, String> pbAndjProperties = new HashMap<>();
-        pbAndjProperties.put(PROPERTY_ALGORITHM, DEFAULT_PROPERTY_ALGORITHM);
-        pbAndjProperties.put(PROPERTY_ITERATIONS, DEFAULT_PROPERTY_ITERATIONS);
-        pbAndjProperties.put(PROPERTY_SALT_SIZE, DEFAULT_SALT_SIZE);
-        pbAndjProperties.put(PROPERTY_KEY_SIZE, DEFAULT_KEY_SIZE);
-        pbAndjPasswordHash.initialize(pbAndjProperties);
-        String pwHash = pbAndjPasswordHash.generate(DEFAULT_USER_PASSWORD.toCharArray());
+        userForNewPhysician.setUsername(defaultUsernameFor(newPhysician));
         userForNewPhysician.setPwHash(pwHash);
         userForNewPhysician.setPhysician(newPhysician);
-        SecurityRole userRole = /* TODO ACMECS01 - Use NamedQuery on SecurityRole to find USER_ROLE */ null;
+        nameFilters.getUsernames().addBeforeCommit(tsr, userForNewPhysician.getUsername());
+        TypedQuery<SecurityRole> findRole = em.createNamedQuery(SecurityRole.ROLE_BY_NAME_QUERY_NAME, SecurityRole.class);
+        findRole.setParameter(PARAM1, USER_ROLE);
+        SecurityRole userRole = findRole.getSingleResult();
         userForNewPhysician.getRoles().add(userRole);
         userRole.getUsers().add(userForNewPhysician);
         em.persist(userForNewPhysician);
     }
 
+    /**
+     * Create the SecurityUser for a queued physician and mark its provisioning READY
+     * 
+     * @param physicianId - id of queued physician
+     * @param pwHash - password hash for the new user, computed by the caller outside of this transaction
+     * @return true if this call created the user, false if it was not (or no longer) PENDING
+     */
     @Transactional
-    public Medicine setMedicineForPhysicianPatient(int physicianId, int patientId, Medicine newMedicine) {
-        Physician physicianToBeUpdated = em.find(Physician.class, physicianId);
-        if (physicianToBeUpdated != null) { // Physician exists
-            Set<Prescription> prescriptions = physicianToBeUpdated.getPrescriptions();
-            prescriptions.forEach(p -> {
-                if (p.getPatient().getId() == patientId) {
-                    if (p.getMedicine() != null) { // Medicine exists
-                        Medicine medicine = em.find(Medicine.class, p.getMedicine().getId());
-                        medicine.setMedicine(newMedicine.getDrugName(),
-                        				  newMedicine.getManufacturerName(),
-                        				  newMedicine.getDosageInformation());
-                        em.merge(medicine);
+    public boolean provisionUserForPhysician(int physicianId, String pwHash) {
+        // The UPDATE's row lock keeps other workers (on any node) out until this transaction ends;
+        // if creating the user fails, the rollback puts the row back to PENDING
+        int claimed = em.createNamedQuery(UserProvisioning.CLAIM_QUERY_NAME)
+            .setParameter(PARAM1, physicianId)
+            .setParameter("param2", UserProvisioning.Status.READY)
+            .setParameter("param3", LocalDateTime.now())
+            .setParameter("param4", UserProvisioning.Status.PENDING)
+            .executeUpdate();
+        if (claimed == 0) {
+            return false;
+        }
+        Physician physician = em.find(Physician.class, physicianId);
+        buildUserForNewPhysician(physician, pwHash);
+        return true;
+    }
+
+    @Transactional
+    public void recordUserProvisioningFailure(int physicianId, String error, int maxAttempts) {
+        UserProvisioning provisioning = em.find(UserProvisioning.class, physicianId);
+        if (provisioning != null && provisioning.getStatus() == UserProvisioning.Status.PENDING) {
+            provisioning.setAttempts(provisioning.getAttempts() + 1);
+            provisioning.setLastError(error == null || error.length() <= 255 ? error : error.substring(0, 255));
+            if (provisioning.getAttempts() >= maxAttempts) {
+                provisioning.setStatus(UserProvisioning.Status.FAILED);
+            }
+        }
+    }
+
+    public List<Integer> getPendingUserProvisioningIds(int max) {
+        TypedQuery<Integer> pendingQuery = em.createNamedQuery(UserProvisioning.IDS_BY_STATUS_QUERY_NAME, Integer.class);
+        pendingQuery.setParameter(PARAM1, UserProvisioning.Status.PENDING);
+        pendingQuery.setMaxResults(max);
+        return pendingQuery.getResultList();
+    }
+
+    public UserProvisioning getUserProvisioning(int physicianId) {
+        return em.find(UserProvisioning.class, physicianId);
+    }
+
+    /**
+     * @param physician - physician whose SecurityUser is being created
+     * @return username every physician's SecurityUser gets by default
+     */
+    protected static String defaultUsernameFor(Physician physician) {
+        return DEFAULT_USER_PREFIX + "_" + physician.getFirstName() + "." + physician.getLastName();
+    }
+
+    /**
+     * Insert one chunk of a bulk import - physicians, their SecurityUsers with USER_ROLE and (READY)
+     * provisioning rows - in a single transaction.
+     * <p>
+     * physician and security_user ids are AUTO_INCREMENT, and Hibernate turns off insert batching for
+     * IDENTITY ids (it needs each id before it can go on), so <code>em.persist</code> would cost four round
+     * trips per physician.  Instead each table gets one JDBC batch on the transaction's connection, and
+     * the ids come back from <code>getGeneratedKeys</code>.  Nothing is loaded into the persistence context.
+     * 
+     * @param physicians - physicians to insert, only their first and last names are used
+     * @param pwHashes - password hash for each physician's SecurityUser, computed by the caller outside of this transaction;
+     *        null for the physicians {@link #validateImport(List, int)} rejects
+     * @param firstRow - position of the chunk's first physician in the whole import, used to number the results
+     * @return one result per physician, in the same order
+     */
+    @Transactional
+    public List<PhysicianImportResult> importPhysicians(List<Physician> physicians, List<String> pwHashes, int firstRow) {
+        PhysicianImportResult[] results = validateImport(physicians, firstRow);
+        Map<String, Integer> candidates = new HashMap<>();
+        for (int i = 0; i < physicians.size(); i++) {
+            if (results[i] == null) {
+                candidates.put(defaultUsernameFor(physicians.get(i)), i);
+            }
+        }
+        BloomFilter usernames = nameFilters.getUsernames();
+        Set<String> possiblyExisting = new HashSet<>();
+        for (String username : candidates.keySet()) {
+            if (usernames.mightContain(username)) {
+                possiblyExisting.add(username);
+            }
+        }
+        if (!candidates.isEmpty()) {
+            em.unwrap(Session.class).doWork(connection -> {
+                Set<String> existingUsernames = possiblyExisting.isEmpty() ? Set.of() : findExistingUsernames(connection, possiblyExisting);
+                for (int fp = existingUsernames.size(); fp < possiblyExisting.size(); fp++) {
+                    usernames.recordFalsePositive();
+                }
+                for (String existing : existingUsernames) {
+                    int i = candidates.remove(existing);
+                    results[i] = PhysicianImportResult.rejected(firstRow + i, existing, "username " + existing + " already exists");
+                }
+                if (candidates.isEmpty()) {
+                    return;
+                }
+                List<Integer> rows = new ArrayList<>(candidates.values());
+                Collections.sort(rows);
+                try {
+                    insertImport(connection, physicians, pwHashes, rows, firstRow, results);
+                }
+                catch (SQLException e) {
+                    // the whole chunk is rolled back, but the rows rejected above still were rejected
+                    tsr.setRollbackOnly();
+                    if (isDuplicateKey(e)) {
+                        // another node inserted one of them since our filter's last rebuild:  let a retry
+                        // of the chunk look all of them up instead of failing on the same name again
+                        candidates.keySet().forEach(usernames::add);
                     }
-                    else { // Medicine does not exist
-                        p.setMedicine(newMedicine);
-                        em.merge(physicianToBeUpdated);
+                    for (int i : rows) {
+                        results[i] = PhysicianImportResult.failed(firstRow + i, defaultUsernameFor(physicians.get(i)),
+                            "chunk rolled back: " + e.getMessage());
                     }
                 }
             });
-            return newMedicine;
         }
-        else return null;  // Physician doesn't exists
+        return List.of(results);
+    }
+
+    /**
+     * The checks of {@link #importPhysicians(List, List, int)} that need no database, for the caller to hash
+     * passwords only for the physicians that pass them
+     *
+     * @param physicians - the chunk
+     * @param firstRow - position of the chunk's first physician in the whole import
+     * @return REJECTED result for each physician that fails one of them, null for the others
+     */
+    public PhysicianImportResult[] validateImport(List<Physician> physicians, int firstRow) {
+        PhysicianImportResult[] results = new PhysicianImportResult[physicians.size()];
+        Set<String> usernames = new HashSet<>();
+        for (int i = 0; i < physicians.size(); i++) {
+            Physician physician = physicians.get(i);
+            String reason = null;
+            String username = null;
+            if (physician == null || isBlank(physician.getFirstName()) || isBlank(physician.getLastName())) {
+                reason = "first and last name are required";
+            }
+            else if (physician.getFirstName().length() > MAX_NAME_LENGTH || physician.getLastName().length() > MAX_NAME_LENGTH) {
+                reason = "first and last name must be at most " + MAX_NAME_LENGTH + " characters";
+            }
+            else {
+                username = defaultUsernameFor(physician);
+                if (username.length() > MAX_USERNAME_LENGTH) {
+                    reason = "username " + username + " is longer than " + MAX_USERNAME_LENGTH + " characters";
+                }
+                else if (!usernames.add(username)) {
+                    reason = "username " + username + " is already used earlier in this import";
+                }
+            }
+            if (reason != null) {
+                results[i] = PhysicianImportResult.rejected(firstRow + i, username, reason);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Results for a chunk of {@link #importPhysicians(List, List, int)} that failed to commit:  rows that fail
+     * its checks are still REJECTED, only the rows it would have inserted are FAILED
+     *
+     * @param physicians - the chunk
+     * @param firstRow - position of the chunk's first physician in the whole import
+     * @param reason - why the chunk failed
+     * @return one result per physician, in the same order
+     */
+    public List<PhysicianImportResult> rolledBackImport(List<Physician> physicians, int firstRow, String reason) {
+        PhysicianImportResult[] results = validateImport(physicians, firstRow);
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                results[i] = PhysicianImportResult.failed(firstRow + i, defaultUsernameFor(physicians.get(i)), reason);
+            }
+        }
+        return List.of(results);
+    }
+
+    // physicians, security users with their role, and provisioning rows for the given rows of the chunk
+    protected void insertImport(Connection connection, List<Physician> physicians, List<String> pwHashes,
+        List<Integer> rows, int firstRow, PhysicianImportResult[] results) throws SQLException {
+        int roleId = findRoleId(connection, USER_ROLE);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[] physicianIds = new int[rows.size()];
+        try (PreparedStatement insert = connection.prepareStatement(IMPORT_PHYSICIAN_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (int i : rows) {
+                insert.setString(1, physicians.get(i).getFirstName());
+                insert.setString(2, physicians.get(i).getLastName());
+                insert.setTimestamp(3, now);
+                insert.setTimestamp(4, now);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            readGeneratedKeys(insert, physicianIds);
+        }
+        int[] userIds = new int[rows.size()];
+        try (PreparedStatement insert = connection.prepareStatement(IMPORT_SECURITY_USER_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (int k = 0; k < rows.size(); k++) {
+                insert.setString(1, pwHashes.get(rows.get(k)));
+                insert.setString(2, defaultUsernameFor(physicians.get(rows.get(k))));
+                insert.setInt(3, physicianIds[k]);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            readGeneratedKeys(insert, userIds);
+        }
+        try (PreparedStatement insert = connection.prepareStatement(IMPORT_USER_HAS_ROLE_SQL)) {
+            for (int userId : userIds) {
+                insert.setInt(1, userId);
+                insert.setInt(2, roleId);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        try (PreparedStatement insert = connection.prepareStatement(IMPORT_USER_PROVISIONING_SQL)) {
+            for (int physicianId : physicianIds) {
+                insert.setInt(1, physicianId);
+                insert.setString(2, UserProvisioning.Status.READY.name());
+                insert.setTimestamp(3, now);
+                insert.setTimestamp(4, now);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        for (int k = 0; k < rows.size(); k++) {
+            int i = rows.get(k);
+            String username = defaultUsernameFor(physicians.get(i));
+            nameFilters.getUsernames().addBeforeCommit(tsr, username);
+            results[i] = PhysicianImportResult.created(firstRow + i, physicianIds[k], username);
+        }
+    }
+
+    /**
+     * The name filters only know this node's writes between rebuilds, so a name another node has just
+     * inserted gets past {@link #isDuplicated(MedicalSchool)} and the UNIQUE index rejects it instead
+     *
+     * @param e - exception thrown by an insert or update, or anything wrapping it
+     * @return true if somewhere in its causes a UNIQUE index refused a duplicate
+     */
+    public static boolean isDuplicateKey(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException
+                && (sqlException.getErrorCode() == MYSQL_DUPLICATE_ENTRY
+                    || UNIQUE_VIOLATION_SQLSTATE.equals(sqlException.getSQLState()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    protected static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    protected static Set<String> findExistingUsernames(Connection connection, Set<String> usernames) throws SQLException {
+        Set<String> existing = new HashSet<>();
+        String placeholders = String.join(", ", Collections.nCopies(usernames.size(), "?"));
+        try (PreparedStatement select = connection.prepareStatement(
+            "SELECT username FROM security_user WHERE username IN (" + placeholders + ")")) {
+            int index = 1;
+            for (String username : usernames) {
+                select.setString(index++, username);
+            }
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    existing.add(rs.getString(1));
+                }
+            }
+        }
+        return existing;
+    }
+
+    protected static int findRoleId(Connection connection, String roleName) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement("SELECT role_id FROM security_role WHERE name = ?")) {
+            select.setString(1, roleName);
+            try (ResultSet rs = select.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("security role " + roleName + " does not exist");
+                }
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    protected static void readGeneratedKeys(PreparedStatement insert, int[] ids) throws SQLException {
+        try (ResultSet keys = insert.getGeneratedKeys()) {
+            for (int k = 0; k < ids.length; k++) {
+                if (!keys.next()) {
+                    throw new SQLException("expected " + ids.length + " generated keys, got " + k);
+                }
+                ids[k] = keys.getInt(1);
+            }
+        }
+    }
+
+    /**
+     * Give the prescription of a physician for a patient a medicine, or update the one it already has
+     *
+     * @param physicianId - id of physician
+     * @param patientId - id of patient
+     * @param newMedicine - medicine details
+     * @return newMedicine, or null if the physician does not exist
+     */
+    @Transactional
+    public Medicine setMedicineForPhysicianPatient(int physicianId, int patientId, Medicine newMedicine) {
+        writeLocks.lockUntilCompletion(tsr, Physician.class, physicianId);
+        Prescription prescription = em.find(Prescription.class, new PrescriptionPK(physicianId, patientId));
+        if (prescription == null) {
+            // No such prescription, nothing to change; null only if the physician is missing altogether
+            return em.find(Physician.class, physicianId) == null ? null : newMedicine;
+        }
+        applyMedicine(prescription, newMedicine);
+        return newMedicine;
+    }
+
+    /**
+     * Bulk variant of {@link #setMedicineForPhysicianPatient(int, int, Medicine)}:  all assignments in one
+     * transaction, the prescriptions loaded a few hundred keys per query and the updates flushed as JDBC batches.
+     *
+     * @param assignments - (physician, patient, medicine) triples
+     * @return medicine set for each assignment, in input order; null where no such prescription exists
+     */
+    @Transactional
+    public List<Medicine> setMedicinesForPhysicianPatients(List<MedicineAssignment> assignments) {
+        Set<Integer> physicianIds = new HashSet<>();
+        assignments.forEach(a -> physicianIds.add(a.getPhysicianId()));
+        writeLocks.lockAllUntilCompletion(tsr, Physician.class, physicianIds);
+        List<Medicine> results = new ArrayList<>(assignments.size());
+        for (int from = 0; from < assignments.size(); from += KEY_CHUNK) {
+            List<MedicineAssignment> chunk = assignments.subList(from, Math.min(from + KEY_CHUNK, assignments.size()));
+            Map<Long, Prescription> prescriptions = findPrescriptions(chunk);
+            for (MedicineAssignment assignment : chunk) {
+                Prescription prescription = prescriptions.get(keyOf(assignment.getPhysicianId(), assignment.getPatientId()));
+                if (prescription == null) {
+                    results.add(null);
+                    continue;
+                }
+                applyMedicine(prescription, assignment.getMedicine());
+                results.add(assignment.getMedicine());
+            }
+            // UPDATEs go out batched (hibernate.jdbc.batch_size, order_updates); then free the chunk's entities
+            em.flush();
+            em.clear();
+        }
+        return results;
+    }
+
+    /**
+     * @param assignments - at most KEY_CHUNK assignments
+     * @return their existing prescriptions (with medicine), by {@link #keyOf(int, int)}
+     */
+    protected Map<Long, Prescription> findPrescriptions(List<MedicineAssignment> assignments) {
+        // OR of exactly the wanted (physician, patient) pairs:  two IN lists would match their cross product
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Prescription> cq = cb.createQuery(Prescription.class);
+        Root<Prescription> rx = cq.from(Prescription.class);
+        rx.fetch(MEDICINE_ATTRIBUTE, JoinType.LEFT);
+        Path<PrescriptionPK> id = rx.get(ID_ATTRIBUTE);
+        Set<Long> keys = new HashSet<>();
+        List<Predicate> pairs = new ArrayList<>(assignments.size());
+        for (MedicineAssignment assignment : assignments) {
+            if (keys.add(keyOf(assignment.getPhysicianId(), assignment.getPatientId()))) {
+                pairs.add(cb.and(cb.equal(id.get(PHYSICIAN_ID_ATTRIBUTE), assignment.getPhysicianId()),
+                    cb.equal(id.get(PATIENT_ID_ATTRIBUTE), assignment.getPatientId())));
+            }
+        }
+        cq.select(rx).where(cb.or(pairs.toArray(new Predicate[0])));
+        Map<Long, Prescription> prescriptions = new HashMap<>();
+        for (Prescription prescription : em.createQuery(cq).getResultList()) {
+            prescriptions.put(keyOf(prescription.getId().getPhysicianId(), prescription.getId().getPatientId()), prescription);
+        }
+        return prescriptions;
+    }
+
+    // PrescriptionPK's hashCode is per instance, so it cannot be looked up by value - this can
+    protected static long keyOf(int physicianId, int patientId) {
+        return ((long) physicianId << Integer.SIZE) | Integer.toUnsignedLong(patientId);
+    }
+
+    // prescription is managed:  changes to it (and to its medicine) are written on flush, no merge needed
+    protected void applyMedicine(Prescription prescription, Medicine newMedicine) {
+        Medicine medicine = prescription.getMedicine();
+        if (medicine != null) { // Medicine exists
+            medicine.setMedicine(newMedicine.getDrugName(), newMedicine.getManufacturerName(),
+                newMedicine.getDosageInformation());
+        }
+        else { // Medicine does not exist
+            prescription.setMedicine(em.merge(newMedicine));
+        }
     }
 
     /**
@@ -146,6 +651,7 @@ public class ACMEMedicalService implements Serializable {
      */
     @Transactional
     public Physician updatePhysicianById(int id, Physician physicianWithUpdates) {
+        writeLocks.lockUntilCompletion(tsr, Physician.class, id);
     	Physician physicianToBeUpdated = getPhysicianById(id);
         if (physicianToBeUpdated != null) {
             em.refresh(physicianToBeUpdated);
@@ -162,6 +668,7 @@ public class ACMEMedicalService implements Serializable {
      */
     @Transactional
     public void deletePhysicianById(int id) {
+        writeLocks.lockUntilCompletion(tsr, Physician.class, id);
         Physician physician = getPhysicianById(id);
         if (physician != null) {
             em.refresh(physician);
@@ -183,12 +690,26 @@ public class ACMEMedicalService implements Serializable {
         return em.createQuery(cq).getResultList();
     }
 
+    public KeysetPage<MedicalSchool> getMedicalSchoolsPage(int after, int limit) {
+        KeysetPage<MedicalSchool> page = getAll(MedicalSchool.class, MEDICAL_SCHOOLS_PAGE_QUERY_NAME, after, limit);
+        fetchGraphs(MedicalSchool.class, page.getItems(), MedicalSchool.DEFAULT_FETCH_GRAPHS);
+        return page;
+    }
+
+    /**
+     * @param id - id of medical school
+     * @return strong entity tag of the school's current representation, or null if there is no such school
+     */
+    public String getMedicalSchoolVersionTag(int id) {
+        return getVersionTag(MedicalSchool.VERSION_FINGERPRINT_QUERY_NAMES, id);
+    }
+
     // Why not use the build-in em.find?  The named query SPECIFIC_MEDICAL_SCHOOL_QUERY_NAME
     // includes JOIN FETCH that we cannot add to the above API
     public MedicalSchool getMedicalSchoolById(int id) {
         TypedQuery<MedicalSchool> specificMedicalSchoolQuery = em.createNamedQuery(SPECIFIC_MEDICAL_SCHOOL_QUERY_NAME, MedicalSchool.class);
         specificMedicalSchoolQuery.setParameter(PARAM1, id);
-        return specificMedicalSchoolQuery.getSingleResult();
+        return firstOrNull(specificMedicalSchoolQuery);
     }
     
     // These methods are more generic.
@@ -198,53 +719,439 @@ public class ACMEMedicalService implements Serializable {
         return allQuery.getResultList();
     }
     
+    /**
+     * Keyset (cursor) version of {@link #getAll(Class, String)}.  Unlike OFFSET paging, every page costs the same
+     * index range scan on the primary key no matter how deep into the table it is.
+     * 
+     * @param entity - type of entity to read
+     * @param namedQuery - named query taking the cursor as PARAM1, i.e. <code>WHERE e.id > :param1 ORDER BY e.id</code>
+     * @param after - id of the last entity of the previous page, 0 for the first page
+     * @param limit - maximum number of entities on the page
+     * @return page of entities along with the cursor for the next page
+     */
+    public <T extends PojoBase> KeysetPage<T> getAll(Class<T> entity, String namedQuery, int after, int limit) {
+        TypedQuery<T> pageQuery = em.createNamedQuery(namedQuery, entity);
+        pageQuery.setParameter(PARAM1, after);
+        // Ask for one extra row so we know whether there is a next page without a COUNT
+        pageQuery.setMaxResults(limit + 1);
+        List<T> items = pageQuery.getResultList();
+        Integer nextCursor = null;
+        if (items.size() > limit) {
+            items = items.subList(0, limit);
+            nextCursor = items.get(limit - 1).getId();
+        }
+        return new KeysetPage<>(items, nextCursor);
+    }
+
+    /**
+     * Keyset page of only some basic attributes of an entity, as a Criteria tuple projection:  columns that are
+     * not asked for are never read and associations are never touched, so nothing can be lazy loaded.
+     * 
+     * @param entity - type of entity to read
+     * @param fields - names of basic attributes to read, validated by the caller
+     * @param after - id of the last entity of the previous page, 0 for the first page
+     * @param limit - maximum number of entities on the page
+     * @return page of field-name to value maps (in <code>fields</code> order) along with the cursor for the next page
+     */
+    public KeysetPage<Map<String, Object>> getFieldsPage(Class<? extends PojoBase> entity, List<String> fields,
+        int after, int limit) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        Root<? extends PojoBase> root = cq.from(entity);
+        cq.multiselect(projection(root, fields))
+            .where(cb.gt(root.get(ID_ATTRIBUTE), after))
+            .orderBy(cb.asc(root.get(ID_ATTRIBUTE)));
+        List<Tuple> rows = em.createQuery(cq).setMaxResults(limit + 1).getResultList();
+        Integer nextCursor = null;
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            nextCursor = (Integer) rows.get(limit - 1).get(ID_ATTRIBUTE);
+        }
+        List<Map<String, Object>> items = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            items.add(toFieldMap(row, fields));
+        }
+        return new KeysetPage<>(items, nextCursor);
+    }
+
+    /**
+     * Single entity version of {@link #getFieldsPage(Class, List, int, int)}
+     * 
+     * @param entity - type of entity to read
+     * @param fields - names of basic attributes to read, validated by the caller
+     * @param id - id of entity
+     * @return field-name to value map (in <code>fields</code> order), or null if there is no such entity
+     */
+    public Map<String, Object> getFieldsById(Class<? extends PojoBase> entity, List<String> fields, int id) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        Root<? extends PojoBase> root = cq.from(entity);
+        cq.multiselect(projection(root, fields)).where(cb.equal(root.get(ID_ATTRIBUTE), id));
+        List<Tuple> rows = em.createQuery(cq).getResultList();
+        return rows.isEmpty() ? null : toFieldMap(rows.get(0), fields);
+    }
+
+    // id is always selected (aliased by attribute name), it is the keyset cursor
+    protected static List<Selection<?>> projection(Root<?> root, List<String> fields) {
+        List<Selection<?>> selections = new ArrayList<>(fields.size() + 1);
+        if (!fields.contains(ID_ATTRIBUTE)) {
+            selections.add(root.get(ID_ATTRIBUTE).alias(ID_ATTRIBUTE));
+        }
+        for (String field : fields) {
+            selections.add(root.get(field).alias(field));
+        }
+        return selections;
+    }
+
+    protected static Map<String, Object> toFieldMap(Tuple row, List<String> fields) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String field : fields) {
+            values.put(field, row.get(field));
+        }
+        return values;
+    }
+
+    /**
+     * Read every entity of a named query through a forward-only database cursor, handing each one to
+     * <code>rowConsumer</code> as soon as it is read.  Rows are consumed in batches of the fetch size:  the
+     * associations of a batch are fetched with one query per entity graph, and the persistence context is
+     * cleared after each batch, so memory stays flat regardless of how many rows the query returns.
+     * 
+     * @param entity - type of entity to read
+     * @param namedQuery - named query to scroll through
+     * @param entityGraphNames - names of @NamedEntityGraphs of <code>entity</code> to fetch for every row
+     * @param rowConsumer - called once per entity, while the cursor (and transaction) are still open
+     * @return number of entities read
+     */
+    public <T extends PojoBase> int streamAll(Class<T> entity, String namedQuery, List<String> entityGraphNames,
+        Consumer<? super T> rowConsumer) {
+        Session session = em.unwrap(Session.class);
+        int count = 0;
+        List<T> batch = new ArrayList<>(streamFetchSize);
+        ScrollableResults rows;
+        Runnable restore = enableCursorFetch(session);
+        try {
+            rows = session.createNamedQuery(namedQuery, entity)
+                .setFetchSize(streamFetchSize)
+                .setReadOnly(true)
+                .setCacheMode(CacheMode.IGNORE)
+                .scroll(ScrollMode.FORWARD_ONLY);
+        }
+        finally {
+            restore.run();
+        }
+        try (rows) {
+            while (rows.next()) {
+                batch.add(entity.cast(rows.get(0)));
+                if (batch.size() == streamFetchSize) {
+                    count += consumeBatch(session, entity, batch, entityGraphNames, rowConsumer);
+                }
+            }
+            count += consumeBatch(session, entity, batch, entityGraphNames, rowConsumer);
+        }
+        return count;
+    }
+
+    /**
+     * MySQL's driver buffers a whole ResultSet unless the connection has <code>useCursorFetch</code>, which
+     * would turn every query of the pool into a server-side cursor with a round trip per fetch.  So it is
+     * switched on (with the server-side prepared statements it needs) only while the streaming statement is
+     * prepared - the statement keeps it, the statements of the batches do not get it.  Other drivers:  nothing to do.
+     *
+     * @param session - session whose connection prepares the streaming statement next
+     * @return puts the connection's settings back, to be called once the statement is prepared
+     */
+    protected static Runnable enableCursorFetch(Session session) {
+        return session.doReturningWork(connection -> {
+            if (!connection.isWrapperFor(JdbcConnection.class)) {
+                return () -> {
+                };
+            }
+            PropertySet properties = connection.unwrap(JdbcConnection.class).getPropertySet();
+            RuntimeProperty<Boolean> cursorFetch = properties.getBooleanProperty(PropertyKey.useCursorFetch);
+            RuntimeProperty<Boolean> serverPrepStmts = properties.getBooleanProperty(PropertyKey.useServerPrepStmts);
+            boolean cursorFetchBefore = cursorFetch.getValue();
+            boolean serverPrepStmtsBefore = serverPrepStmts.getValue();
+            cursorFetch.setValue(true);
+            serverPrepStmts.setValue(true);
+            return () -> {
+                cursorFetch.setValue(cursorFetchBefore);
+                serverPrepStmts.setValue(serverPrepStmtsBefore);
+            };
+        });
+    }
+
+    protected <T extends PojoBase> int consumeBatch(Session session, Class<T> entity, List<T> batch,
+        List<String> entityGraphNames, Consumer<? super T> rowConsumer) {
+        int consumed = batch.size();
+        fetchGraphs(entity, batch, entityGraphNames);
+        batch.forEach(rowConsumer);
+        batch.clear();
+        // the batch along with everything fetched for it - evict(row) would leave the associations behind
+        session.clear();
+        return consumed;
+    }
+
+    /**
+     * Cheap estimate of the number of rows for an entity's table, read from MySQL's table statistics
+     * instead of a COUNT(*) that would scan the whole table.  Other databases (the embedded H2 unit) have no
+     * such statistics, they get the exact COUNT.
+     * 
+     * @param entity - type of entity to estimate
+     * @return estimated row count, or -1 if no estimate is available
+     */
+    public long getEstimatedCount(Class<? extends PojoBase> entity) {
+        SessionFactoryImplementor sessionFactory = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+        if (!(sessionFactory.getJdbcServices().getDialect() instanceof MySQLDialect)) {
+            CriteriaBuilder cb = em.getCriteriaBuilder();
+            CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+            cq.select(cb.count(cq.from(entity)));
+            return em.createQuery(cq).getSingleResult();
+        }
+        EntityPersister persister = sessionFactory.getMetamodel().entityPersister(entity);
+        if (!(persister instanceof AbstractEntityPersister entityPersister)) {
+            return -1;
+        }
+        String tableName = entityPersister.getTableName().replace("`", "");
+        List<?> estimate = em.createNativeQuery(
+            "SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?1")
+            .setParameter(1, tableName)
+            .getResultList();
+        if (estimate.isEmpty() || estimate.get(0) == null) {
+            return -1;
+        }
+        return ((Number) estimate.get(0)).longValue();
+    }
+    
+    /**
+     * Entity tag made of an entity's id, its version and a hash of the rows of its version fingerprint queries - a
+     * few index lookups instead of loading (and serializing) the entity graph just to find out nothing has changed.
+     * 
+     * @param namedQueries - named queries taking the id as PARAM1 and returning ids and version numbers in a fixed
+     *        order; the first starts every row with the version of the entity and returns no row if there is none
+     * @param id - id of entity
+     * @return tag, or null if there is no such entity
+     */
+    public String getVersionTag(List<String> namedQueries, int id) {
+        long hash = FINGERPRINT_OFFSET_BASIS;
+        Object version = null;
+        for (String namedQuery : namedQueries) {
+            List<Object[]> rows = em.createNamedQuery(namedQuery, Object[].class)
+                .setParameter(PARAM1, id)
+                .getResultList();
+            if (version == null) {
+                if (rows.isEmpty()) {
+                    return null;
+                }
+                version = rows.get(0)[0];
+            }
+            for (Object[] row : rows) {
+                hash = fingerprint(hash, row);
+            }
+            // so that rows cannot move from one query to the next unnoticed
+            hash = (hash ^ rows.size()) * FINGERPRINT_PRIME;
+        }
+        return id + "." + version + "." + Long.toHexString(BloomFilter.mix(hash));
+    }
+
+    // FNV-1a over the columns, each a whole id or version number; null (an empty LEFT JOIN) is not any number
+    protected static long fingerprint(long hash, Object[] row) {
+        for (Object column : row) {
+            hash = (hash ^ (column == null ? 0 : 1)) * FINGERPRINT_PRIME;
+            if (column != null) {
+                hash = (hash ^ ((Number) column).longValue()) * FINGERPRINT_PRIME;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Load an entity together with exactly the associations of a named entity graph.<br>
+     * A query rather than <code>em.find</code>, which could return a (second-level) cached instance and
+     * then load the graph's collections one by one.
+     * 
+     * @param entity - type of entity to read
+     * @param id - id of entity
+     * @param entityGraphName - name of a @NamedEntityGraph of <code>entity</code>, applied as a fetch graph
+     * @return entity with the graph's associations initialized, or null if there is no such entity
+     */
+    public <T extends PojoBase> T getByIdWithGraph(Class<T> entity, int id, String entityGraphName) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<T> cq = cb.createQuery(entity);
+        Root<T> root = cq.from(entity);
+        cq.select(root).where(cb.equal(root.get(ID_ATTRIBUTE), id));
+        List<T> rows = em.createQuery(cq)
+            .setHint(QueryHints.JAKARTA_HINT_FETCHGRAPH, em.getEntityGraph(entityGraphName))
+            .getResultList();
+        // fetching a collection repeats the root once per element
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * Load an entity together with the associations of several named entity graphs, one query per graph.<br>
+     * Unlike a single graph that fetches more than one collection, this never reads their cartesian product.
+     * 
+     * @param entity - type of entity to read
+     * @param id - id of entity
+     * @param entityGraphNames - names of @NamedEntityGraphs of <code>entity</code>
+     * @return entity with the graphs' associations initialized, or null if there is no such entity
+     */
+    public <T extends PojoBase> T getByIdWithGraphs(Class<T> entity, int id, List<String> entityGraphNames) {
+        T root = em.find(entity, id);
+        if (root != null) {
+            fetchGraphs(entity, List.of(root), entityGraphNames);
+        }
+        return root;
+    }
+
+    /**
+     * Initialize the associations of entities already in the persistence context:  one query per named entity
+     * graph for all of them together, where serializing them would have lazily loaded each association of each
+     * entity on its own.  The queries return the same (managed) instances, with the graph's associations filled in.
+     * 
+     * @param entity - type of the entities
+     * @param roots - entities to fetch associations for, managed by this persistence context
+     * @param entityGraphNames - names of @NamedEntityGraphs of <code>entity</code>, each applied as a fetch graph
+     */
+    public <T extends PojoBase> void fetchGraphs(Class<T> entity, List<T> roots, List<String> entityGraphNames) {
+        if (roots.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = new ArrayList<>(roots.size());
+        for (T root : roots) {
+            ids.add(root.getId());
+        }
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        for (String entityGraphName : entityGraphNames) {
+            CriteriaQuery<T> cq = cb.createQuery(entity);
+            Root<T> root = cq.from(entity);
+            cq.select(root).where(root.get(ID_ATTRIBUTE).in(ids));
+            em.createQuery(cq)
+                .setHint(QueryHints.JAKARTA_HINT_FETCHGRAPH, em.getEntityGraph(entityGraphName))
+                .getResultList();
+        }
+    }
+
     public <T> T getById(Class<T> entity, String namedQuery, int id) {
         TypedQuery<T> allQuery = em.createNamedQuery(namedQuery, entity);
         allQuery.setParameter(PARAM1, id);
-        return allQuery.getSingleResult();
+        return firstOrNull(allQuery);
+    }
+
+    /**
+     * A miss is an expected outcome of a lookup by id, not an error:  unlike getSingleResult() this does not
+     * construct (and fill in the stack trace of) a NoResultException for it
+     *
+     * @param query - query for at most one entity, possibly repeated once per element of a JOIN FETCHed collection
+     * @return first row, or null if there is none
+     */
+    protected static <T> T firstOrNull(TypedQuery<T> query) {
+        List<T> rows = query.getResultList();
+        return rows.isEmpty() ? null : rows.get(0);
     }
 
     @Transactional
     public MedicalSchool deleteMedicalSchool(int id) {
-        //MedicalSchool ms = getMedicalSchoolById(id);
-    	MedicalSchool ms = getById(MedicalSchool.class, MedicalSchool.SPECIFIC_MEDICAL_SCHOOL_QUERY_NAME, id);
+        writeLocks.lockUntilCompletion(tsr, MedicalSchool.class, id);
+        MedicalSchool ms = em.find(MedicalSchool.class, id);
         if (ms != null) {
-            Set<MedicalTraining> medicalTrainings = ms.getMedicalTrainings();
-            List<MedicalTraining> list = new LinkedList<>();
-            medicalTrainings.forEach(list::add);
-            list.forEach(mt -> {
-                if (mt.getCertificate() != null) {
-                    MedicalCertificate mc = getById(MedicalCertificate.class, MedicalCertificate.ID_CARD_QUERY_NAME, mt.getCertificate().getId());
-                    mc.setMedicalTraining(null);
-                }
-                mt.setCertificate(null);
-                em.merge(mt);
-            });
-            em.remove(ms);
+            // Bulk statements bypass the persistence context:  hand back a detached copy, its trainings go with it
+            em.detach(ms);
+            ms.setMedicalTrainings(new HashSet<>());
+            // Three statements whatever the number of trainings - no per-training SELECT/UPDATE round trips
+            int certificates = executeBulk(MedicalCertificate.DETACH_FROM_SCHOOL_QUERY_NAME, id);
+            int trainings = executeBulk(MedicalTraining.DELETE_BY_SCHOOL_QUERY_NAME, id);
+            int schools = executeBulk(MedicalSchool.DELETE_BY_ID_QUERY_NAME, id);
+            evictAfterCompletion(MedicalCertificate.class, MedicalTraining.class, Physician.class);
+            schoolDeletes.increment();
+            certificatesDetached.add(certificates);
+            trainingsDeleted.add(trainings);
+            schoolsDeleted.add(schools);
+            LOG.debug("deleted medical school {}: {} certificates detached, {} trainings deleted", id, certificates, trainings);
             return ms;
         }
         return null;
     }
+
+    protected int executeBulk(String namedQuery, int id) {
+        bulkStatements.increment();
+        return em.createNamedQuery(namedQuery).setParameter(PARAM1, id).executeUpdate();
+    }
+
+    /**
+     * Bulk statements bypass the shared cache as well:  drop what it holds of the entities they changed once the
+     * transaction has completed, so that a concurrent read cannot put the old state back in between
+     *
+     * @param entities - entities changed by bulk statements of the current transaction
+     */
+    protected void evictAfterCompletion(Class<?>... entities) {
+        Cache cache = em.getEntityManagerFactory().getCache();
+        tsr.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                for (Class<?> entity : entities) {
+                    cache.evict(entity);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return statements issued and rows affected by medical school deletes
+     */
+    public Map<String, Object> getBulkDeleteStatistics() {
+        long deletes = schoolDeletes.sum();
+        long statements = bulkStatements.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("medical-school-deletes", deletes);
+        stats.put("statements", statements);
+        stats.put("statements-per-delete", deletes == 0 ? 0.0 : (double) statements / deletes);
+        stats.put("certificates-detached", certificatesDetached.sum());
+        stats.put("trainings-deleted", trainingsDeleted.sum());
+        stats.put("medical-schools-deleted", schoolsDeleted.sum());
+        return stats;
+    }
     
     // Please study & use the methods below in your test suites
     
     public boolean isDuplicated(MedicalSchool newMedicalSchool) {
+        BloomFilter medicalSchoolNames = nameFilters.getMedicalSchoolNames();
+        // Nearly every name is new:  a definite miss in the filter needs no COUNT query
+        if (!medicalSchoolNames.mightContain(newMedicalSchool.getName())) {
+            return false;
+        }
         TypedQuery<Long> allMedicalSchoolsQuery = em.createNamedQuery(IS_DUPLICATE_QUERY_NAME, Long.class);
         allMedicalSchoolsQuery.setParameter(PARAM1, newMedicalSchool.getName());
-        return (allMedicalSchoolsQuery.getSingleResult() >= 1);
+        boolean duplicated = allMedicalSchoolsQuery.getSingleResult() >= 1;
+        if (!duplicated) {
+            medicalSchoolNames.recordFalsePositive();
+        }
+        return duplicated;
     }
 
     @Transactional
     public MedicalSchool persistMedicalSchool(MedicalSchool newMedicalSchool) {
         em.persist(newMedicalSchool);
+        // added before commit:  if this transaction rolls back the name only becomes a false positive
+        nameFilters.getMedicalSchoolNames().addBeforeCommit(tsr, newMedicalSchool.getName());
         return newMedicalSchool;
     }
 
     @Transactional
     public MedicalSchool updateMedicalSchool(int id, MedicalSchool updatingMedicalSchool) {
+        writeLocks.lockUntilCompletion(tsr, MedicalSchool.class, id);
     	MedicalSchool medicalSchoolToBeUpdated = getMedicalSchoolById(id);
         if (medicalSchoolToBeUpdated != null) {
             em.refresh(medicalSchoolToBeUpdated);
+            String oldName = medicalSchoolToBeUpdated.getName();
+            if (!Objects.equals(oldName, updatingMedicalSchool.getName())) {
+                // the old name stays in the filter (a false positive) until the next rebuild
+                nameFilters.getMedicalSchoolNames().addBeforeCommit(tsr, updatingMedicalSchool.getName());
+            }
             medicalSchoolToBeUpdated.setName(updatingMedicalSchool.getName());
             em.merge(medicalSchoolToBeUpdated);
             em.flush();
@@ -254,6 +1161,9 @@ public class ACMEMedicalService implements Serializable {
     
     @Transactional
     public MedicalTraining persistMedicalTraining(MedicalTraining newMedicalTraining) {
+        if (newMedicalTraining.getMedicalSchool() != null) {
+            writeLocks.lockUntilCompletion(tsr, MedicalSchool.class, newMedicalTraining.getMedicalSchool().getId());
+        }
         em.persist(newMedicalTraining);
         return newMedicalTraining;
     }
@@ -261,11 +1171,12 @@ public class ACMEMedicalService implements Serializable {
     public MedicalTraining getMedicalTrainingById(int mtId) {
         TypedQuery<MedicalTraining> allMedicalTrainingQuery = em.createNamedQuery(MedicalTraining.FIND_BY_ID, MedicalTraining.class);
         allMedicalTrainingQuery.setParameter(PARAM1, mtId);
-        return allMedicalTrainingQuery.getSingleResult();
+        return firstOrNull(allMedicalTrainingQuery);
     }
 
     @Transactional
     public MedicalTraining updateMedicalTraining(int id, MedicalTraining medicalTrainingWithUpdates) {
+        writeLocks.lockUntilCompletion(tsr, MedicalTraining.class, id);
     	MedicalTraining medicalTrainingToBeUpdated = getMedicalTrainingById(id);
         if (medicalTrainingToBeUpdated != null) {
             em.refresh(medicalTrainingToBeUpdated);
@@ -274,5 +1185,124 @@ public class ACMEMedicalService implements Serializable {
         }
         return medicalTrainingToBeUpdated;
     }
-    
+
+    /**
+     * @return wait-time statistics of the per-entity write locks
+     */
+    public Map<String, Object> getWriteLockStatistics() {
+        return writeLocks.getStatistics();
+    }
+
+    /**
+     * @return hits, misses and hit ratio of every shared (second-level) cache region, plus the query cache overall
+     */
+    public Map<String, Object> getSharedCacheStatistics() {
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+            if (region != null) {
+                Map<String, Object> regionStats = cacheStatistics(region.getHitCount(), region.getMissCount(), region.getPutCount());
+                regionStats.put("size", region.getElementCountInMemory());
+                stats.put(regionName, regionStats);
+            }
+        }
+        stats.put("query-cache", cacheStatistics(statistics.getQueryCacheHitCount(),
+            statistics.getQueryCacheMissCount(), statistics.getQueryCachePutCount()));
+        return stats;
+    }
+
+    /**
+     * Snapshot of what Hibernate has done since startup or the last {@link #resetOrmStatistics()}:  per query
+     * (by named query name where there is one) execution count and times, per entity loads and fetches,
+     * flushes, statements, transactions and second-level cache hit ratios
+     *
+     * @return ORM statistics
+     */
+    public Map<String, Object> getOrmStatistics() {
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("since", new Timestamp(statistics.getStartTime()).toLocalDateTime());
+
+        Map<String, String> queryNames = getNamedQueryNames();
+        Map<String, Object> queries = new TreeMap<>();
+        for (String query : statistics.getQueries()) {
+            QueryStatistics queryStatistics = statistics.getQueryStatistics(query);
+            Map<String, Object> queryStats = new LinkedHashMap<>();
+            queryStats.put("executions", queryStatistics.getExecutionCount());
+            queryStats.put("rows", queryStatistics.getExecutionRowCount());
+            queryStats.put("avg-ms", queryStatistics.getExecutionAvgTimeAsDouble());
+            queryStats.put("max-ms", queryStatistics.getExecutionMaxTime());
+            queryStats.put("total-ms", queryStatistics.getExecutionTotalTime());
+            queryStats.put("cache", cacheStatistics(queryStatistics.getCacheHitCount(),
+                queryStatistics.getCacheMissCount(), queryStatistics.getCachePutCount()));
+            queries.put(queryNames.getOrDefault(query, query), queryStats);
+        }
+        stats.put("queries", queries);
+        stats.put("slowest-query", queryNames.getOrDefault(statistics.getQueryExecutionMaxTimeQueryString(),
+            statistics.getQueryExecutionMaxTimeQueryString()));
+        stats.put("slowest-query-ms", statistics.getQueryExecutionMaxTime());
+
+        Map<String, Object> entities = new TreeMap<>();
+        for (String entityName : statistics.getEntityNames()) {
+            EntityStatistics entityStatistics = statistics.getEntityStatistics(entityName);
+            Map<String, Object> entityStats = new LinkedHashMap<>();
+            entityStats.put("loads", entityStatistics.getLoadCount());
+            entityStats.put("fetches", entityStatistics.getFetchCount());
+            entityStats.put("inserts", entityStatistics.getInsertCount());
+            entityStats.put("updates", entityStatistics.getUpdateCount());
+            entityStats.put("deletes", entityStatistics.getDeleteCount());
+            entities.put(entityName, entityStats);
+        }
+        stats.put("entities", entities);
+
+        Map<String, Object> totals = new LinkedHashMap<>();
+        totals.put("entity-loads", statistics.getEntityLoadCount());
+        // fetches are the lazy (or N+1) loads of an association, loads include those
+        totals.put("entity-fetches", statistics.getEntityFetchCount());
+        totals.put("collection-loads", statistics.getCollectionLoadCount());
+        totals.put("collection-fetches", statistics.getCollectionFetchCount());
+        totals.put("queries", statistics.getQueryExecutionCount());
+        totals.put("flushes", statistics.getFlushCount());
+        totals.put("statements-prepared", statistics.getPrepareStatementCount());
+        totals.put("sessions-opened", statistics.getSessionOpenCount());
+        totals.put("transactions", statistics.getTransactionCount());
+        totals.put("successful-transactions", statistics.getSuccessfulTransactionCount());
+        totals.put("optimistic-failures", statistics.getOptimisticFailureCount());
+        stats.put("totals", totals);
+
+        stats.put("second-level-cache", cacheStatistics(statistics.getSecondLevelCacheHitCount(),
+            statistics.getSecondLevelCacheMissCount(), statistics.getSecondLevelCachePutCount()));
+        stats.put("shared-cache-regions", getSharedCacheStatistics());
+        return stats;
+    }
+
+    /**
+     * Start all ORM statistics (including the shared cache counters) from zero
+     */
+    public void resetOrmStatistics() {
+        em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics().clear();
+        LOG.debug("ORM statistics reset");
+    }
+
+    // Hibernate keys query statistics by query string:  map those of named queries back to their names
+    protected Map<String, String> getNamedQueryNames() {
+        Map<String, String> names = new HashMap<>();
+        for (EntityType<?> entityType : em.getMetamodel().getEntities()) {
+            for (NamedQuery namedQuery : entityType.getJavaType().getAnnotationsByType(NamedQuery.class)) {
+                names.put(namedQuery.query(), namedQuery.name());
+            }
+        }
+        return names;
+    }
+
+    protected static Map<String, Object> cacheStatistics(long hitCount, long missCount, long putCount) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("puts", putCount);
+        stats.put("hit-ratio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        return stats;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,247 @@
+/********************************************************************************************************
+ * File:  BloomFilter.java Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Shariar (Shawn) Emami
+ *
+ */
+package acmemedical.ejb;
+
+import java.text.Normalizer;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * In-memory set of (unique) names that answers "definitely not present" without a database round trip.<br>
+ * A negative answer is certain, a positive one only means "maybe" and has to be confirmed by the database.
+ * <p>
+ * Names are compared case- and accent-insensitively, at least as loosely as MySQL's default collation,
+ * so two names the UNIQUE index considers equal always hit the same bits.
+ * <p>
+ * The filter only ever errs on the side of "maybe":  names are added before their transaction commits
+ * (a rollback merely leaves a stale entry) and never taken out - a deleted or renamed name stays a false
+ * positive until the next {@link #rebuild(Supplier)}.  Removing names (a counting filter) would let a delete
+ * clear bits of a name this filter never saw, e.g. one inserted by another node, and turn it into a false
+ * negative.  Writes made by another node are not seen until the next rebuild - the UNIQUE index remains the
+ * final guard.
+ */
+public class BloomFilter {
+
+    private final int bitCount;
+    private final int hashCount;
+
+    private volatile AtomicLongArray bits;
+    // while a rebuild is reading its snapshot, additions go to both arrays so none are lost in the swap
+    private volatile AtomicLongArray rebuilding;
+    // names added by transactions that have not completed yet, one queue per transaction:  a rebuild's
+    // snapshot cannot see them, so they are carried over into the new array
+    private final Set<Queue<String>> uncommitted = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder definitelyAbsent = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder entries = new LongAdder();
+
+    /**
+     * @param expectedEntries - number of names the filter is sized for
+     * @param falsePositiveRate - wanted probability of a "maybe" for an absent name at expectedEntries
+     */
+    public BloomFilter(int expectedEntries, double falsePositiveRate) {
+        int n = Math.max(1, expectedEntries);
+        // optimal number of bits m = -n ln(p) / ln(2)^2 and of hash functions k = (m / n) ln(2)
+        double m = -n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        bitCount = (int) Math.max(Long.SIZE, Math.min(Math.ceil(m), Integer.MAX_VALUE - Long.SIZE));
+        hashCount = Math.max(1, (int) Math.round(bitCount / (double) n * Math.log(2)));
+        bits = newBits();
+    }
+
+    /**
+     * @param name - name to check
+     * @return false if name is definitely not in the set, true if it might be (including a null name)
+     */
+    public boolean mightContain(String name) {
+        checks.increment();
+        if (name == null) {
+            return true;
+        }
+        AtomicLongArray current = bits;
+        long[] hashes = hashes(name);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = bit(hashes, i);
+            if ((current.get(bit / Long.SIZE) & (1L << bit)) == 0) {
+                definitelyAbsent.increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * To be called when the database said "no" after {@link #mightContain(String)} said "maybe"
+     */
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    /**
+     * Add a name the current transaction is inserting (or renaming to).  Added right away, so that a
+     * concurrent check already answers "maybe", and kept in mind until the transaction completes, so that
+     * a rebuild reading a snapshot without it does not drop it.
+     *
+     * @param tsr - registry of the current JTA transaction
+     * @param name - name being inserted
+     */
+    public void addBeforeCommit(TransactionSynchronizationRegistry tsr, String name) {
+        if (name == null) {
+            return;
+        }
+        if (tsr.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            @SuppressWarnings("unchecked")
+            Queue<String> names = (Queue<String>) tsr.getResource(this);
+            if (names == null) {
+                Queue<String> transactionNames = new ConcurrentLinkedQueue<>();
+                tsr.putResource(this, transactionNames);
+                tsr.registerInterposedSynchronization(new Synchronization() {
+                    @Override
+                    public void beforeCompletion() {
+                    }
+
+                    @Override
+                    public void afterCompletion(int status) {
+                        uncommitted.remove(transactionNames);
+                    }
+                });
+                uncommitted.add(transactionNames);
+                names = transactionNames;
+            }
+            // before add:  a rebuild either finds the name here or is already capturing additions
+            names.add(name);
+        }
+        add(name);
+    }
+
+    /**
+     * Add a name that is already committed (or is not written in a transaction)
+     *
+     * @param name - name to add
+     */
+    public void add(String name) {
+        if (name == null) {
+            return;
+        }
+        long[] hashes = hashes(name);
+        set(bits, hashes);
+        AtomicLongArray next = rebuilding;
+        if (next != null) {
+            set(next, hashes);
+        }
+        entries.increment();
+    }
+
+    /**
+     * Replace the contents of the filter with a fresh snapshot of all names, clearing the names deleted since
+     * the last rebuild and adding anything missed from other nodes.
+     *
+     * @param snapshot - reads every committed name; called only after concurrent additions are being captured
+     */
+    public synchronized void rebuild(Supplier<Stream<String>> snapshot) {
+        AtomicLongArray next = newBits();
+        rebuilding = next;
+        try {
+            long[] count = new long[1];
+            // added before rebuilding was set by transactions still running:  the snapshot cannot see them.
+            // Read first - a transaction that completes from here on has committed before the snapshot starts
+            for (Queue<String> transactionNames : uncommitted) {
+                for (String name : transactionNames) {
+                    set(next, hashes(name));
+                    count[0]++;
+                }
+            }
+            try (Stream<String> names = snapshot.get()) {
+                names.forEach(name -> {
+                    set(next, hashes(name));
+                    count[0]++;
+                });
+            }
+            bits = next;
+            entries.reset();
+            entries.add(count[0]);
+        }
+        finally {
+            rebuilding = null;
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        long checkCount = checks.sum();
+        long absentCount = definitelyAbsent.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.sum());
+        stats.put("bits", bitCount);
+        stats.put("hash-functions", hashCount);
+        stats.put("checks", checkCount);
+        stats.put("definitely-absent", absentCount);
+        stats.put("skipped-query-ratio", checkCount == 0 ? 0.0 : (double) absentCount / checkCount);
+        stats.put("false-positives", falsePositives.sum());
+        return stats;
+    }
+
+    protected AtomicLongArray newBits() {
+        return new AtomicLongArray((bitCount + Long.SIZE - 1) / Long.SIZE);
+    }
+
+    protected void set(AtomicLongArray target, long[] hashes) {
+        for (int i = 0; i < hashCount; i++) {
+            int bit = bit(hashes, i);
+            long mask = 1L << bit;
+            int index = bit / Long.SIZE;
+            // most bits are set already once the filter fills up, skip the write
+            if ((target.get(index) & mask) == 0) {
+                target.getAndAccumulate(index, mask, (word, m) -> word | m);
+            }
+        }
+    }
+
+    // Double hashing:  bit i = h1 + i * h2, two well-mixed 64-bit hashes are as good as k independent ones
+    protected int bit(long[] hashes, int i) {
+        return (int) Long.remainderUnsigned(hashes[0] + i * hashes[1], bitCount);
+    }
+
+    protected static long[] hashes(String name) {
+        String key = normalize(name);
+        // 64-bit FNV-1a over the normalized name
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        // h2 must be odd so the k bits do not collapse onto a short cycle
+        return new long[] {mix(hash), mix(hash ^ 0x9e3779b97f4a7c15L) | 1L};
+    }
+
+    // Drop case and accents (and surrounding blanks) - equal in the database must mean equal here
+    protected static String normalize(String name) {
+        String stripped = Normalizer.normalize(name.strip(), Normalizer.Form.NFKD).replaceAll("\\p{M}", "");
+        return stripped.toLowerCase(Locale.ROOT);
+    }
+
+    // MurmurHash3 finalizer
+    protected static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+}
@@ -0,0 +1,42 @@
+/********************************************************************************************************
+ * File:  KeysetPage.java Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Shariar (Shawn) Emami
+ *
+ */
+package acmemedical.ejb;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * One page of a keyset (a.k.a. cursor) read over entities keyed by {@link acmemedical.entity.PojoBase#getId()}.<br>
+ * The next page is requested with <code>after = nextCursor</code>; <code>nextCursor</code> is <code>null</code>
+ * on the last page.
+ *
+ * @param <T> - type of entity on this page
+ */
+public class KeysetPage<T> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final List<T> items;
+    private final Integer nextCursor;
+
+    public KeysetPage(List<T> items, Integer nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public Integer getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
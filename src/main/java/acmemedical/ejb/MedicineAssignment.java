@@ -0,0 +1,60 @@
+/********************************************************************************************************
+ * File:  MedicineAssignment.java Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Shariar (Shawn) Emami
+ *
+ */
+package acmemedical.ejb;
+
+import java.io.Serializable;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import acmemedical.entity.Medicine;
+
+/**
+ * One row of a bulk medicine assignment:  the medicine to set on a physician's prescription for a patient
+ */
+public class MedicineAssignment implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private int physicianId;
+    private int patientId;
+    private Medicine medicine;
+
+    public MedicineAssignment() {
+    }
+
+    public MedicineAssignment(int physicianId, int patientId, Medicine medicine) {
+        this.physicianId = physicianId;
+        this.patientId = patientId;
+        this.medicine = medicine;
+    }
+
+    @JsonProperty("physician-id")
+    public int getPhysicianId() {
+        return physicianId;
+    }
+
+    public void setPhysicianId(int physicianId) {
+        this.physicianId = physicianId;
+    }
+
+    @JsonProperty("patient-id")
+    public int getPatientId() {
+        return patientId;
+    }
+
+    public void setPatientId(int patientId) {
+        this.patientId = patientId;
+    }
+
+    public Medicine getMedicine() {
+        return medicine;
+    }
+
+    public void setMedicine(Medicine medicine) {
+        this.medicine = medicine;
+    }
+}
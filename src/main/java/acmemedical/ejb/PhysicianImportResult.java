@@ -0,0 +1,77 @@
+/********************************************************************************************************
+ * File:  PhysicianImportResult.java Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Shariar (Shawn) Emami
+ *
+ */
+package acmemedical.ejb;
+
+import java.io.Serializable;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Outcome of one row of a bulk physician import
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PhysicianImportResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public enum Outcome {
+        /** physician, its SecurityUser and role were inserted */
+        CREATED,
+        /** row was invalid or would duplicate an existing user, nothing was inserted for it */
+        REJECTED,
+        /** row was valid but its chunk's transaction failed, nothing was inserted for it */
+        FAILED
+    }
+
+    private final int row;
+    private final Outcome outcome;
+    private final Integer physicianId;
+    private final String username;
+    private final String reason;
+
+    public PhysicianImportResult(int row, Outcome outcome, Integer physicianId, String username, String reason) {
+        this.row = row;
+        this.outcome = outcome;
+        this.physicianId = physicianId;
+        this.username = username;
+        this.reason = reason;
+    }
+
+    public static PhysicianImportResult created(int row, int physicianId, String username) {
+        return new PhysicianImportResult(row, Outcome.CREATED, physicianId, username, null);
+    }
+
+    public static PhysicianImportResult rejected(int row, String username, String reason) {
+        return new PhysicianImportResult(row, Outcome.REJECTED, null, username, reason);
+    }
+
+    public static PhysicianImportResult failed(int row, String username, String reason) {
+        return new PhysicianImportResult(row, Outcome.FAILED, null, username, reason);
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    @JsonProperty("physician-id")
+    public Integer getPhysicianId() {
+        return physicianId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,153 @@
+/********************************************************************************************************
+ * File:  StripedLocks.java Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Shariar (Shawn) Emami
+ *
+ */
+package acmemedical.ejb;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Fixed array of locks, an entity (type + id) always maps to the same lock.<br>
+ * Writers touching the same entity are serialized, writers touching different entities almost never wait
+ * on each other and readers never take a lock at all.
+ * <p>
+ * Locks are held until the surrounding (JTA) transaction completes, not just until the business method
+ * returns - otherwise a second writer could read the row before the first writer's changes are committed.
+ * So they belong to the transaction, not to a thread:  each stripe is a single permit {@link Semaphore} (the
+ * transaction manager may complete a transaction, e.g. roll it back on timeout, on another thread than the one
+ * that locked, and only the owner thread can unlock a ReentrantLock), and locking a stripe the transaction
+ * already holds returns at once.
+ * <p>
+ * Lock one entity per transaction or, if several are needed, all of them at once with
+ * {@link #lockAllUntilCompletion(TransactionSynchronizationRegistry, Class, Collection)}.
+ */
+public class StripedLocks {
+
+    private final Semaphore[] stripes;
+    private final int mask;
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * @param stripeCount - number of locks, rounded up to a power of two
+     */
+    public StripedLocks(int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new Semaphore[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Semaphore(1);
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Lock the stripe for an entity until the current transaction commits or rolls back.
+     *
+     * @param tsr - registry of the current JTA transaction
+     * @param type - entity type
+     * @param id - entity id
+     */
+    public void lockUntilCompletion(TransactionSynchronizationRegistry tsr, Class<?> type, int id) {
+        lockUntilCompletion(tsr, stripeIndex(type, id));
+    }
+
+    /**
+     * Lock the stripes of several entities of one type until the current transaction commits or rolls back.<br>
+     * Stripes are taken in stripe order - not id order, unrelated ids can share a stripe - so two transactions
+     * doing this can never deadlock each other.
+     *
+     * @param tsr - registry of the current JTA transaction
+     * @param type - entity type
+     * @param ids - entity ids, duplicates allowed
+     */
+    public void lockAllUntilCompletion(TransactionSynchronizationRegistry tsr, Class<?> type, Collection<Integer> ids) {
+        int[] indexes = ids.stream().mapToInt(id -> stripeIndex(type, id)).distinct().sorted().toArray();
+        for (int index : indexes) {
+            lockUntilCompletion(tsr, index);
+        }
+    }
+
+    protected void lockUntilCompletion(TransactionSynchronizationRegistry tsr, int stripeIndex) {
+        if (tsr.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            // No transaction to wait for
+            acquire(stripeIndex);
+            stripes[stripeIndex].release();
+            return;
+        }
+        // Stripes this transaction holds, released together when it completes
+        BitSet held = (BitSet) tsr.getResource(this);
+        if (held == null) {
+            BitSet acquired = new BitSet(stripes.length);
+            tsr.putResource(this, acquired);
+            tsr.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    acquired.stream().forEach(index -> stripes[index].release());
+                }
+            });
+            held = acquired;
+        }
+        if (!held.get(stripeIndex)) {
+            acquire(stripeIndex);
+            held.set(stripeIndex);
+        }
+    }
+
+    protected int stripeIndex(Class<?> type, int id) {
+        return spread(Objects.hash(type.getName(), id)) & mask;
+    }
+
+    protected void acquire(int stripeIndex) {
+        Semaphore stripe = stripes[stripeIndex];
+        acquisitions.increment();
+        if (!stripe.tryAcquire()) {
+            contended.increment();
+            long start = System.nanoTime();
+            stripe.acquireUninterruptibly();
+            long waited = System.nanoTime() - start;
+            totalWaitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+        }
+    }
+
+    // Same bit-spreading as java.util.HashMap, so neighbouring ids don't share a stripe
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    public Map<String, Object> getStatistics() {
+        long acquired = acquisitions.sum();
+        long waits = contended.sum();
+        long waitNanos = totalWaitNanos.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("stripes", stripes.length);
+        stats.put("acquisitions", acquired);
+        stats.put("contended-acquisitions", waits);
+        stats.put("total-wait-ms", TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        stats.put("mean-wait-us", waits == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(waitNanos / waits));
+        stats.put("max-wait-us", TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get()));
+        return stats;
+    }
+}
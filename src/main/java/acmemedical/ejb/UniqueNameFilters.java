@@ -0,0 +1,95 @@
+/********************************************************************************************************
+ * File:  UniqueNameFilters.java Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Shariar (Shawn) Emami
+ *
+ */
+package acmemedical.ejb;
+
+import static acmemedical.utility.MyConstants.DEFAULT_NAME_FILTER_EXPECTED_ENTRIES;
+import static acmemedical.utility.MyConstants.DEFAULT_NAME_FILTER_FALSE_POSITIVE_RATE;
+import static acmemedical.utility.MyConstants.NAME_FILTER_EXPECTED_ENTRIES_PROPNAME;
+import static acmemedical.utility.MyConstants.NAME_FILTER_FALSE_POSITIVE_RATE_PROPNAME;
+import static acmemedical.utility.MyConstants.PU_NAME;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import acmemedical.entity.MedicalSchool;
+import acmemedical.entity.SecurityUser;
+
+/**
+ * Bloom filters of the values of this application's UNIQUE name columns (<code>medical_school.name</code>,
+ * <code>security_user.username</code>), so that the duplicate check on create only goes to the database
+ * for a name that might already exist.
+ * <p>
+ * Built at startup and rebuilt periodically, which also drops deleted names and picks up names written by
+ * other nodes; in between, whoever inserts or renames to a name adds it.
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class UniqueNameFilters {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    @PersistenceContext(name = PU_NAME)
+    protected EntityManager em;
+
+    @Inject
+    @ConfigProperty(name = NAME_FILTER_EXPECTED_ENTRIES_PROPNAME, defaultValue = DEFAULT_NAME_FILTER_EXPECTED_ENTRIES)
+    protected int expectedEntries;
+
+    @Inject
+    @ConfigProperty(name = NAME_FILTER_FALSE_POSITIVE_RATE_PROPNAME, defaultValue = DEFAULT_NAME_FILTER_FALSE_POSITIVE_RATE)
+    protected double falsePositiveRate;
+
+    protected BloomFilter medicalSchoolNames;
+    protected BloomFilter usernames;
+
+    @PostConstruct
+    protected void init() {
+        medicalSchoolNames = new BloomFilter(expectedEntries, falsePositiveRate);
+        usernames = new BloomFilter(expectedEntries, falsePositiveRate);
+        rebuild();
+    }
+
+    @Schedule(hour = "*", minute = "*/15", persistent = false)
+    public void rebuild() {
+        medicalSchoolNames.rebuild(() ->
+            em.createNamedQuery(MedicalSchool.ALL_NAMES_QUERY_NAME, String.class).getResultStream());
+        usernames.rebuild(() ->
+            em.createNamedQuery(SecurityUser.ALL_USERNAMES_QUERY_NAME, String.class).getResultStream());
+        LOG.debug("unique name filters rebuilt");
+    }
+
+    public BloomFilter getMedicalSchoolNames() {
+        return medicalSchoolNames;
+    }
+
+    public BloomFilter getUsernames() {
+        return usernames;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("medical-school-names", medicalSchoolNames.getStatistics());
+        stats.put("usernames", usernames.getStatistics());
+        return stats;
+    }
+}
@@ -0,0 +1,216 @@
+/********************************************************************************************************
+ * File:  UserProvisioningWorker.java Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Shariar (Shawn) Emami
+ *
+ */
+package acmemedical.ejb;
+
+import static acmemedical.utility.MyConstants.DEFAULT_IMPORT_HASH_THREADS;
+import static acmemedical.utility.MyConstants.DEFAULT_KEY_SIZE;
+import static acmemedical.utility.MyConstants.DEFAULT_PROPERTY_ALGORITHM;
+import static acmemedical.utility.MyConstants.DEFAULT_PROPERTY_ITERATIONS;
+import static acmemedical.utility.MyConstants.DEFAULT_PROVISIONING_WORKERS;
+import static acmemedical.utility.MyConstants.DEFAULT_SALT_SIZE;
+import static acmemedical.utility.MyConstants.DEFAULT_USER_PASSWORD;
+import static acmemedical.utility.MyConstants.IMPORT_HASH_THREADS_PROPNAME;
+import static acmemedical.utility.MyConstants.PROPERTY_ALGORITHM;
+import static acmemedical.utility.MyConstants.PROPERTY_ITERATIONS;
+import static acmemedical.utility.MyConstants.PROPERTY_KEY_SIZE;
+import static acmemedical.utility.MyConstants.PROPERTY_SALT_SIZE;
+import static acmemedical.utility.MyConstants.PROVISIONING_WORKERS_PROPNAME;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.inject.Inject;
+import jakarta.security.enterprise.identitystore.Pbkdf2PasswordHash;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Drains the <code>user_provisioning</code> queue:  computes the PBKDF2 hash and creates the SecurityUser
+ * for each new physician on a bounded pool of worker threads, so POST /physician does not wait for either.
+ * <p>
+ * New physicians are handed over directly via {@link #submit(int)}; a periodic sweep picks up anything
+ * that was not (node restarted, pool was full, an earlier attempt failed).
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class UserProvisioningWorker {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    private static final int QUEUE_CAPACITY = 1000;
+    private static final int SWEEP_BATCH = 500;
+    private static final int MAX_ATTEMPTS = 5;
+
+    @EJB
+    protected ACMEMedicalService service;
+
+    @Inject
+    protected Pbkdf2PasswordHash pbAndjPasswordHash;
+
+    @Resource
+    protected ManagedThreadFactory threadFactory;
+
+    // the container's default executor, for the bulk import's password hashes
+    @Resource
+    protected ManagedExecutorService hashExecutor;
+
+    @Inject
+    @ConfigProperty(name = PROVISIONING_WORKERS_PROPNAME, defaultValue = DEFAULT_PROVISIONING_WORKERS)
+    protected int workerCount;
+
+    @Inject
+    @ConfigProperty(name = IMPORT_HASH_THREADS_PROPNAME, defaultValue = DEFAULT_IMPORT_HASH_THREADS)
+    protected int importHashThreads;
+
+    protected ThreadPoolExecutor executor;
+
+    // physicians handed to the pool but not finished yet, so the sweep does not queue them twice
+    protected final Set<Integer> inFlight = ConcurrentHashMap.newKeySet();
+
+    protected class ProvisioningTask implements Runnable {
+        protected final int physicianId;
+
+        protected ProvisioningTask(int physicianId) {
+            this.physicianId = physicianId;
+        }
+
+        @Override
+        public void run() {
+            try {
+                String pwHash = generatePasswordHash(DEFAULT_USER_PASSWORD.toCharArray());
+                if (service.provisionUserForPhysician(physicianId, pwHash)) {
+                    LOG.debug("security user ready for physician {}", physicianId);
+                }
+            }
+            catch (Exception e) {
+                LOG.warn("provisioning security user for physician {} failed: {}", physicianId, e.toString());
+                service.recordUserProvisioningFailure(physicianId, e.toString(), MAX_ATTEMPTS);
+            }
+            finally {
+                inFlight.remove(physicianId);
+            }
+        }
+    }
+
+    @PostConstruct
+    protected void init() {
+        Map<String, String> pbAndjProperties = new HashMap<>();
+        pbAndjProperties.put(PROPERTY_ALGORITHM, DEFAULT_PROPERTY_ALGORITHM);
+        pbAndjProperties.put(PROPERTY_ITERATIONS, DEFAULT_PROPERTY_ITERATIONS);
+        pbAndjProperties.put(PROPERTY_SALT_SIZE, DEFAULT_SALT_SIZE);
+        pbAndjProperties.put(PROPERTY_KEY_SIZE, DEFAULT_KEY_SIZE);
+        pbAndjPasswordHash.initialize(pbAndjProperties);
+
+        // PBKDF2 is pure CPU, more threads than cores only adds context switches
+        int threads = workerCount > 0 ? workerCount : Runtime.getRuntime().availableProcessors();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY), threadFactory, (task, pool) -> {
+                // Pool is saturated: the row stays PENDING in the database and the next sweep retries it
+                inFlight.remove(((ProvisioningTask) task).physicianId);
+            });
+        LOG.debug("user provisioning worker started with {} threads", threads);
+    }
+
+    @PreDestroy
+    protected void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Provision the SecurityUser of a physician whose queue row has been committed
+     *
+     * @param physicianId - id of physician
+     */
+    public void submit(int physicianId) {
+        if (inFlight.add(physicianId)) {
+            executor.execute(new ProvisioningTask(physicianId));
+        }
+    }
+
+    /**
+     * @param password - clear-text password
+     * @return PBKDF2 hash with this application's (fixed) algorithm parameters
+     */
+    public String generatePasswordHash(char[] password) {
+        return pbAndjPasswordHash.generate(password);
+    }
+
+    /**
+     * Hash the default password <code>count</code> times (each with its own salt) on several threads at once,
+     * for bulk imports that cannot afford one PBKDF2 after another.  Runs on the container's managed executor
+     * rather than this worker's pool, so an import does not starve (or get rejected by) the provisioning queue,
+     * and in at most <code>import-hash-threads</code> slices, so it does not take over that executor either.
+     * No transaction:  nothing here touches the database, and a chunk's worth of PBKDF2 takes seconds.
+     *
+     * @param count - number of hashes
+     * @return <code>count</code> independent PBKDF2 hashes of the default user password
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public List<String> generateDefaultPasswordHashes(int count) {
+        int threads = importHashThreads > 0 ? importHashThreads : Runtime.getRuntime().availableProcessors();
+        int slices = Math.max(1, Math.min(threads, count));
+        List<Future<List<String>>> futures = new ArrayList<>(slices);
+        for (int slice = 0; slice < slices; slice++) {
+            // slice sizes differ by at most one
+            int sliceCount = count / slices + (slice < count % slices ? 1 : 0);
+            futures.add(hashExecutor.submit(() -> {
+                List<String> hashes = new ArrayList<>(sliceCount);
+                for (int i = 0; i < sliceCount; i++) {
+                    hashes.add(generatePasswordHash(DEFAULT_USER_PASSWORD.toCharArray()));
+                }
+                return hashes;
+            }));
+        }
+        List<String> hashes = new ArrayList<>(count);
+        try {
+            for (Future<List<String>> future : futures) {
+                hashes.addAll(future.get());
+            }
+        }
+        catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while hashing passwords", e);
+        }
+        catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("hashing passwords failed", e.getCause());
+        }
+        return hashes;
+    }
+
+    @Schedule(hour = "*", minute = "*", second = "*/30", persistent = false)
+    public void sweep() {
+        service.getPendingUserProvisioningIds(SWEEP_BATCH).forEach(this::submit);
+    }
+}
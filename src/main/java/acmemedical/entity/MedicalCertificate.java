@@ -8,6 +8,8 @@ package acmemedical.entity;
 
 import java.io.Serializable;
 
+import jakarta.persistence.NamedQuery;
+
 @SuppressWarnings("unused")
 
 /**
@@ -15,8 +17,15 @@ import java.io.Serializable;
  */
 //TODO MC01 - Add the missing annotations.
 //TODO MC02 - Do we need a mapped super class?  If so, which one?
+// Bulk:  unlink every certificate from the trainings of one school (param1) in a single UPDATE.  A bulk UPDATE
+// skips @Version, so it bumps the version itself - the physicians' version fingerprints (ETags) depend on it
+@NamedQuery(name = MedicalCertificate.DETACH_FROM_SCHOOL_QUERY_NAME, query = "UPDATE MedicalCertificate mc "
+	+ "SET mc.medicalTraining = NULL, mc.version = mc.version + 1 "
+	+ "WHERE mc.medicalTraining IN (SELECT mt FROM MedicalTraining mt WHERE mt.school.id = :param1)")
 public class MedicalCertificate extends PojoBase implements Serializable {
 	private static final long serialVersionUID = 1L;
+
+	public static final String DETACH_FROM_SCHOOL_QUERY_NAME = "MedicalCertificate.detachFromSchool";
 	
 	// TODO MC03 - Add annotations for 1:1 mapping.  What should be the cascade and fetch types?
 	private MedicalTraining medicalTraining;
@@ -8,9 +8,21 @@ package acmemedical.entity;
 
 import java.io.Serializable;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.NamedQuery;
+import jakarta.persistence.NamedSubgraph;
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.QueryHints;
+
 /**
  * The persistent class for the medical_school database table.
  */
@@ -18,8 +30,40 @@ import java.util.Set;
 //TODO MS02 - MedicalSchool has subclasses PublicSchool and PrivateSchool.  Look at Week 9 slides for InheritanceType.
 //TODO MS03 - Do we need a mapped super class?  If so, which one?
 //TODO MS04 - Add in JSON annotations to indicate different sub-classes of MedicalSchool
+// Read-mostly reference data:  kept in the shared cache, any write through JPA updates/invalidates it
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NamedQuery(name = MedicalSchool.ALL_MEDICAL_SCHOOLS_QUERY_NAME, query = "SELECT ms FROM MedicalSchool ms",
+	hints = @QueryHint(name = QueryHints.CACHEABLE, value = "true"))
+// Keyset page:  param1 is the id of the last row of the previous page, ORDER BY id is what makes it a cursor
+@NamedQuery(name = MedicalSchool.MEDICAL_SCHOOLS_PAGE_QUERY_NAME, query = "SELECT ms FROM MedicalSchool ms WHERE ms.id > :param1 ORDER BY ms.id",
+	hints = @QueryHint(name = QueryHints.CACHEABLE, value = "true"))
+@NamedQuery(name = MedicalSchool.ALL_NAMES_QUERY_NAME, query = "SELECT ms.name FROM MedicalSchool ms")
+// Version of the school plus id and version of each training and of its certificate - everything DEFAULT_FETCH_GRAPHS
+// serializes; see Physician.VERSION_FINGERPRINT_QUERY_NAME
+@NamedQuery(name = MedicalSchool.VERSION_FINGERPRINT_QUERY_NAME, query = "SELECT ms.version, mt.id, mt.version, mc.id, mc.version "
+	+ "FROM MedicalSchool ms LEFT JOIN ms.medicalTrainings mt LEFT JOIN mt.certificate mc WHERE ms.id = :param1 ORDER BY mt.id")
+@NamedQuery(name = MedicalSchool.DELETE_BY_ID_QUERY_NAME, query = "DELETE FROM MedicalSchool ms WHERE ms.id = :param1")
+// Fetch plans for GET /medicalschool/{id}?expand=...  The page and NDJSON reads use DEFAULT_FETCH_GRAPHS
+@NamedEntityGraph(name = MedicalSchool.WITH_TRAININGS_GRAPH, attributeNodes = @NamedAttributeNode("medicalTrainings"))
+@NamedEntityGraph(name = MedicalSchool.WITH_TRAININGS_AND_CERTIFICATES_GRAPH,
+	attributeNodes = @NamedAttributeNode(value = "medicalTrainings", subgraph = "trainings"),
+	subgraphs = @NamedSubgraph(name = "trainings", attributeNodes = @NamedAttributeNode("certificate")))
 public abstract class MedicalSchool extends PojoBase implements Serializable {
 	private static final long serialVersionUID = 1L;
+
+	public static final String ALL_MEDICAL_SCHOOLS_QUERY_NAME = "MedicalSchool.findAll";
+	public static final String MEDICAL_SCHOOLS_PAGE_QUERY_NAME = "MedicalSchool.findPage";
+	public static final String ALL_NAMES_QUERY_NAME = "MedicalSchool.allNames";
+	public static final String VERSION_FINGERPRINT_QUERY_NAME = "MedicalSchool.versionFingerprint";
+	public static final List<String> VERSION_FINGERPRINT_QUERY_NAMES = List.of(VERSION_FINGERPRINT_QUERY_NAME);
+	public static final String DELETE_BY_ID_QUERY_NAME = "MedicalSchool.deleteById";
+	public static final String WITH_TRAININGS_GRAPH = "MedicalSchool.withTrainings";
+	public static final String WITH_TRAININGS_AND_CERTIFICATES_GRAPH = "MedicalSchool.withTrainingsAndCertificates";
+	// Everything the JSON of a medical school has always included
+	public static final List<String> DEFAULT_FETCH_GRAPHS = List.of(WITH_TRAININGS_AND_CERTIFICATES_GRAPH);
+	// Basic attributes a client may ask for with ?fields= (never an association)
+	public static final List<String> SELECTABLE_FIELDS = List.of("id", "version", "created", "updated", "name");
 	
 	// TODO MS05 - Add the missing annotations.
 	private String name;
@@ -12,6 +12,7 @@ import java.util.Objects;
 import java.util.Set;
 
 import jakarta.persistence.Embedded;
+import jakarta.persistence.NamedQuery;
 
 @SuppressWarnings("unused")
 
@@ -20,8 +21,12 @@ import jakarta.persistence.Embedded;
  */
 //TODO MT01 - Add the missing annotations.
 //TODO MT02 - Do we need a mapped super class?  If so, which one?
+// Bulk:  every training of one school (param1) in a single DELETE - certificates must be detached first
+@NamedQuery(name = MedicalTraining.DELETE_BY_SCHOOL_QUERY_NAME, query = "DELETE FROM MedicalTraining mt WHERE mt.school.id = :param1")
 public class MedicalTraining extends PojoBase implements Serializable {
 	private static final long serialVersionUID = 1L;
+
+	public static final String DELETE_BY_SCHOOL_QUERY_NAME = "MedicalTraining.deleteBySchool";
 	
 	// TODO MT03 - Add annotations for M:1.  What should be the cascade and fetch types?
 	private MedicalSchool school;
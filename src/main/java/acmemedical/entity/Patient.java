@@ -10,6 +10,10 @@ import java.io.Serializable;
 import java.util.HashSet;
 import java.util.Set;
 
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.NamedSubgraph;
+
 @SuppressWarnings("unused")
 
 /**
@@ -17,8 +21,14 @@ import java.util.Set;
  */
 //TODO PA01 - Add the missing annotations.
 //TODO PA02 - Do we need a mapped super class?  If so, which one?
+// Patient with its prescriptions and their medicines in one query
+@NamedEntityGraph(name = Patient.WITH_PRESCRIPTIONS_GRAPH,
+	attributeNodes = @NamedAttributeNode(value = "prescriptions", subgraph = "prescriptions"),
+	subgraphs = @NamedSubgraph(name = "prescriptions", attributeNodes = @NamedAttributeNode("medicine")))
 public class Patient extends PojoBase implements Serializable {
 	private static final long serialVersionUID = 1L;
+
+	public static final String WITH_PRESCRIPTIONS_GRAPH = "Patient.withPrescriptions";
 	
 	// TODO PA03 - Add missing annotations.
 	private String firstName;
@@ -8,8 +8,14 @@ package acmemedical.entity;
 
 import java.io.Serializable;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.NamedQuery;
+import jakarta.persistence.NamedSubgraph;
+
 /**
  * The persistent class for the physician database table.
  */
@@ -17,9 +23,41 @@ import java.util.Set;
 
 //TODO PH01 - Add the missing annotations.
 //TODO PH02 - Do we need a mapped super class? If so, which one?
+@NamedQuery(name = Physician.ALL_PHYSICIANS_QUERY_NAME, query = "SELECT p FROM Physician p")
+// Keyset page:  param1 is the id of the last row of the previous page, ORDER BY id is what makes it a cursor
+@NamedQuery(name = Physician.PHYSICIANS_PAGE_QUERY_NAME, query = "SELECT p FROM Physician p WHERE p.id > :param1 ORDER BY p.id")
+// Everything the JSON of a physician depends on, without loading it:  its version, the id and version of each
+// certificate, and the key and version of each prescription together with the medicine and patient it is
+// serialized with (those are updated in place, not through the prescription).  Rows, not aggregates:  the service
+// hashes them in order, so no two different sets of children add up to the same tag - one collection per query
+@NamedQuery(name = Physician.VERSION_FINGERPRINT_QUERY_NAME, query = "SELECT p.version, mc.id, mc.version "
+	+ "FROM Physician p LEFT JOIN p.medicalCertificates mc WHERE p.id = :param1 ORDER BY mc.id")
+@NamedQuery(name = Physician.PRESCRIPTIONS_FINGERPRINT_QUERY_NAME, query = "SELECT rx.id.patientId, rx.version, m.id, m.version, pt.version "
+	+ "FROM Prescription rx LEFT JOIN rx.medicine m LEFT JOIN rx.patient pt WHERE rx.id.physicianId = :param1 "
+	+ "ORDER BY rx.id.patientId")
+// Fetch plans for GET /physician/{id}?expand=..., one per collection:  each loads the physician and exactly that collection in one query;
+// without ?expand (and for the page and NDJSON reads) every association is fetched, see DEFAULT_FETCH_GRAPHS
+@NamedEntityGraph(name = Physician.WITH_CERTIFICATES_GRAPH, attributeNodes = @NamedAttributeNode("medicalCertificates"))
+@NamedEntityGraph(name = Physician.WITH_PRESCRIPTIONS_GRAPH,
+	attributeNodes = @NamedAttributeNode(value = "prescriptions", subgraph = "prescriptions"),
+	subgraphs = @NamedSubgraph(name = "prescriptions", attributeNodes = {@NamedAttributeNode("patient"), @NamedAttributeNode("medicine")}))
 public class Physician extends PojoBase implements Serializable {
 	private static final long serialVersionUID = 1L;
 
+	public static final String ALL_PHYSICIANS_QUERY_NAME = "Physician.findAll";
+	public static final String PHYSICIANS_PAGE_QUERY_NAME = "Physician.findPage";
+	public static final String VERSION_FINGERPRINT_QUERY_NAME = "Physician.versionFingerprint";
+	public static final String PRESCRIPTIONS_FINGERPRINT_QUERY_NAME = "Physician.prescriptionsFingerprint";
+	// Root query (physician version) first
+	public static final List<String> VERSION_FINGERPRINT_QUERY_NAMES = List.of(VERSION_FINGERPRINT_QUERY_NAME,
+		PRESCRIPTIONS_FINGERPRINT_QUERY_NAME);
+	public static final String WITH_CERTIFICATES_GRAPH = "Physician.withCertificates";
+	public static final String WITH_PRESCRIPTIONS_GRAPH = "Physician.withPrescriptions";
+	// Everything the JSON of a physician has always included, one query per collection rather than their cartesian product
+	public static final List<String> DEFAULT_FETCH_GRAPHS = List.of(WITH_CERTIFICATES_GRAPH, WITH_PRESCRIPTIONS_GRAPH);
+	// Basic attributes a client may ask for with ?fields= (never an association)
+	public static final List<String> SELECTABLE_FIELDS = List.of("id", "version", "created", "updated", "firstName", "lastName");
+
     public Physician() {
     	super();
     }
@@ -0,0 +1,38 @@
+/********************************************************************************************************
+ * File:  SecurityListener.java Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Shariar (Shawn) Emami
+ * 
+ */
+package acmemedical.entity;
+
+import jakarta.inject.Inject;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+import acmemedical.security.VerifiedCredentialCache;
+
+/**
+ * Keeps the {@link VerifiedCredentialCache} honest:  once a user's password hash or roles change (or the
+ * user is removed), previously verified credentials for that user must go through the identity store again.
+ * The callbacks run at flush, before the commit, so the cache is invalidated once the transaction commits.
+ */
+public class SecurityListener {
+
+	@Inject
+	protected VerifiedCredentialCache credentialCache;
+
+	@PostUpdate
+	@PostRemove
+	public void invalidateVerifiedCredentials(Object securityEntity) {
+		if (securityEntity instanceof SecurityUser user) {
+			credentialCache.invalidateAfterCommit(user.getUsername());
+		}
+		else {
+			// A role was renamed or removed - rare enough to simply start over
+			credentialCache.invalidateAllAfterCommit();
+		}
+	}
+
+}
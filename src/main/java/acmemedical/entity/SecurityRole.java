@@ -12,16 +12,34 @@ import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.NamedQuery;
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.QueryHints;
+
 @SuppressWarnings("unused")
 
 /**
  * Role class used for (JSR-375) Jakarta EE Security authorization/authentication
  */
 //TODO SR01 - Make this into JPA entity and add all necessary annotations inside the class.
+@EntityListeners(SecurityListener.class)
+// A handful of rows that almost never change:  keep them in the shared cache
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NamedQuery(name = SecurityRole.ROLE_BY_NAME_QUERY_NAME,
+    query = "SELECT r FROM SecurityRole r WHERE r.roleName = :param1",
+    hints = @QueryHint(name = QueryHints.CACHEABLE, value = "true"))
 public class SecurityRole implements Serializable {
     /** Explicit set serialVersionUID */
     private static final long serialVersionUID = 1L;
 
+    public static final String ROLE_BY_NAME_QUERY_NAME = "SecurityRole.roleByName";
+
     //TODO SR02 - Add annotations.
     protected int id;
     
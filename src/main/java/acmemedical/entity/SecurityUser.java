@@ -13,6 +13,13 @@ import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.NamedQuery;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import acmemedical.rest.serializer.SecurityRoleSerializer;
+
 @SuppressWarnings("unused")
 
 /**
@@ -20,10 +27,18 @@ import java.util.Set;
  */
 
 //TODO SU01 - Make this into JPA entity and add all the necessary annotations inside the class.
+@EntityListeners(SecurityListener.class)
+// Everything authentication needs in one round trip:  the user with its roles and its physician (if any) fetched
+@NamedQuery(name = SecurityUser.USER_WITH_ROLES_BY_NAME_QUERY_NAME,
+    query = "SELECT DISTINCT u FROM SecurityUser u LEFT JOIN FETCH u.roles LEFT JOIN FETCH u.physician WHERE u.username = :param1")
+@NamedQuery(name = SecurityUser.ALL_USERNAMES_QUERY_NAME, query = "SELECT u.username FROM SecurityUser u")
 public class SecurityUser implements Serializable, Principal {
     /** Explicit set serialVersionUID */
     private static final long serialVersionUID = 1L;
 
+    public static final String USER_WITH_ROLES_BY_NAME_QUERY_NAME = "SecurityUser.userWithRolesByName";
+    public static final String ALL_USERNAMES_QUERY_NAME = "SecurityUser.allUsernames";
+
     //TODO SU02 - Add annotations.
     protected int id;
     
@@ -68,6 +83,7 @@ public class SecurityUser implements Serializable, Principal {
     }
 
     // TODO SU07 - Setup custom JSON serializer
+    @JsonSerialize(using = SecurityRoleSerializer.class)
     public Set<SecurityRole> getRoles() {
         return roles;
     }
@@ -0,0 +1,170 @@
+/********************************************************************************************************
+ * File:  UserProvisioning.java Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Shariar (Shawn) Emami
+ *
+ */
+package acmemedical.entity;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+import jakarta.persistence.Access;
+import jakarta.persistence.AccessType;
+import jakarta.persistence.Basic;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.NamedQuery;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The persistent class for the user_provisioning database table:  a durable queue of physicians whose
+ * SecurityUser has not been created yet.  A row is written in the same transaction as its physician,
+ * so no physician can be left without credentials even if the node dies before the worker gets to it.
+ */
+@Entity
+@Table(name = "user_provisioning")
+@Access(AccessType.FIELD)
+@NamedQuery(name = UserProvisioning.IDS_BY_STATUS_QUERY_NAME,
+	query = "SELECT up.physicianId FROM UserProvisioning up WHERE up.status = :param1 ORDER BY up.physicianId")
+@NamedQuery(name = UserProvisioning.CLAIM_QUERY_NAME,
+	query = "UPDATE UserProvisioning up SET up.status = :param2, up.updated = :param3 "
+		+ "WHERE up.physicianId = :param1 AND up.status = :param4")
+public class UserProvisioning implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	public static final String IDS_BY_STATUS_QUERY_NAME = "UserProvisioning.idsByStatus";
+	public static final String CLAIM_QUERY_NAME = "UserProvisioning.claim";
+
+	public enum Status {
+		/** waiting for a worker (again, if an earlier attempt failed) */
+		PENDING,
+		/** SecurityUser exists, the physician can log in */
+		READY,
+		/** gave up after too many attempts, see lastError */
+		FAILED
+	}
+
+	@Id
+	@Column(name = "physician_id")
+	private int physicianId;
+
+	@Basic(optional = false)
+	@Enumerated(EnumType.STRING)
+	@Column(name = "status", nullable = false, length = 20)
+	private Status status;
+
+	@Column(name = "attempts", nullable = false)
+	private int attempts;
+
+	@Column(name = "last_error", length = 255)
+	private String lastError;
+
+	@Column(name = "created")
+	private LocalDateTime created;
+
+	@Column(name = "updated")
+	private LocalDateTime updated;
+
+	public UserProvisioning() {
+		super();
+	}
+
+	public UserProvisioning(int physicianId) {
+		this();
+		this.physicianId = physicianId;
+		this.status = Status.PENDING;
+	}
+
+	@PrePersist
+	protected void setCreatedOnDate() {
+		LocalDateTime now = LocalDateTime.now();
+		created = now;
+		updated = now;
+	}
+
+	@PreUpdate
+	protected void setUpdatedDate() {
+		updated = LocalDateTime.now();
+	}
+
+	@JsonProperty("physician-id")
+	public int getPhysicianId() {
+		return physicianId;
+	}
+
+	public void setPhysicianId(int physicianId) {
+		this.physicianId = physicianId;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public void setStatus(Status status) {
+		this.status = status;
+	}
+
+	public int getAttempts() {
+		return attempts;
+	}
+
+	public void setAttempts(int attempts) {
+		this.attempts = attempts;
+	}
+
+	@JsonProperty("last-error")
+	public String getLastError() {
+		return lastError;
+	}
+
+	public void setLastError(String lastError) {
+		this.lastError = lastError;
+	}
+
+	public LocalDateTime getCreated() {
+		return created;
+	}
+
+	public void setCreated(LocalDateTime created) {
+		this.created = created;
+	}
+
+	public LocalDateTime getUpdated() {
+		return updated;
+	}
+
+	public void setUpdated(LocalDateTime updated) {
+		this.updated = updated;
+	}
+
+	@Override
+	public int hashCode() {
+		// physicianId is this entity's whole identity
+		return Objects.hash(getPhysicianId());
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (obj instanceof UserProvisioning otherUserProvisioning) {
+			return Objects.equals(this.getPhysicianId(), otherUserProvisioning.getPhysicianId());
+		}
+		return false;
+	}
+
+}
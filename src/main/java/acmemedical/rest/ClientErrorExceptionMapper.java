@@ -12,6 +12,7 @@ package acmemedical.rest;
 
 import acmemedical.rest.resource.HttpErrorResponse;
 import jakarta.ws.rs.ClientErrorException;
+import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.ext.ExceptionMapper;
 import jakarta.ws.rs.ext.Provider;
@@ -34,7 +35,8 @@ public class ClientErrorExceptionMapper implements ExceptionMapper<ClientErrorEx
       Response.StatusType statusType = response.getStatusInfo();
       int statusCode = statusType.getStatusCode();
       String reasonPhrase = statusType.getReasonPhrase();
-      HttpErrorResponse entity = new HttpErrorResponse(statusCode, reasonPhrase);
-      return Response.status(statusCode).entity(entity).build();
+      // pre-rendered JSON, written as-is rather than serialized again for every 4xx
+      byte[] entity = HttpErrorResponse.toJson(statusCode, reasonPhrase);
+      return Response.status(statusCode).type(MediaType.APPLICATION_JSON_TYPE).entity(entity).build();
     }
 }
\ No newline at end of file
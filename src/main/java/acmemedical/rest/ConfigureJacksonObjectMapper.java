@@ -9,20 +9,54 @@
  */
 package acmemedical.rest;
 
+import static acmemedical.utility.MyConstants.DEFAULT_JACKSON_OPTIMIZED;
+import static acmemedical.utility.MyConstants.JACKSON_OPTIMIZED_PROPNAME;
+
+import java.util.List;
+
 import jakarta.ws.rs.ext.ContextResolver;
 import jakarta.ws.rs.ext.Provider;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+import org.eclipse.microprofile.config.ConfigProvider;
+
+import acmemedical.entity.MedicalSchool;
+import acmemedical.entity.MedicalTraining;
+import acmemedical.entity.Medicine;
+import acmemedical.entity.Patient;
+import acmemedical.entity.Physician;
+import acmemedical.rest.serializer.UnfetchedAssociationSerializerModifier;
 
 @Provider
 public class ConfigureJacksonObjectMapper implements ContextResolver<ObjectMapper> {
+
+    // the types whose (de)serializers are resolved at startup in optimized mode
+    private static final List<Class<?>> ENTITY_TYPES =
+        List.of(Physician.class, MedicalSchool.class, MedicalTraining.class, Medicine.class, Patient.class);
     
+    private final boolean optimized;
     private final ObjectMapper objectMapper;
 
+    /**
+     * Mode from MicroProfile Config, read once:  the mapper is built once per application, so flipping it
+     * needs a restart (of one node, for an A/B)
+     */
     public ConfigureJacksonObjectMapper() {
+        this(Boolean.parseBoolean(ConfigProvider.getConfig()
+            .getOptionalValue(JACKSON_OPTIMIZED_PROPNAME, String.class).orElse(DEFAULT_JACKSON_OPTIMIZED).strip()));
+    }
+
+    /**
+     * @param optimized - Blackbird and serializers resolved at startup, see {@link #createObjectMapper()}
+     */
+    public ConfigureJacksonObjectMapper(boolean optimized) {
+        this.optimized = optimized;
         this.objectMapper = createObjectMapper();
     }
 
@@ -35,12 +69,24 @@ public class ConfigureJacksonObjectMapper implements ContextResolver<ObjectMappe
     protected ObjectMapper createObjectMapper() {
         ObjectMapper mapper = new ObjectMapper()
             .registerModule(new JavaTimeModule())
+            // Serialize only what the endpoint fetched, never lazy-load on the way out
+            .registerModule(new SimpleModule().setSerializerModifier(new UnfetchedAssociationSerializerModifier()))
             .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
             .configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false)
             // Lenient parsing of JSON - if a field has a typo, don't fall to pieces
             .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        if (optimized) {
+            // Registered last so its modifier runs first:  it swaps in generated accessors, then the unfetched-association
+            // writers replace those of the associations (which are read reflectively again - correct, just not faster)
+            mapper.registerModule(new BlackbirdModule());
+            // Building a writer/reader resolves the type's root (de)serializer into the mapper's shared caches, which the
+            // JAX-RS provider's writeValue/readValue also look in:  the first request of each type no longer builds them
+            for (Class<?> type : ENTITY_TYPES) {
+                mapper.writerFor(type);
+                mapper.readerFor(type);
+            }
+        }
         /* 
-        HttpErrorAsJSONServlet.setObjectMapper(mapper);
         TypeResolverBuilder<?> typer = new StdTypeResolverBuilder()
                 .init(JsonTypeInfo.Id.NAME, null)
                 .inclusion(JsonTypeInfo.As.PROPERTY)
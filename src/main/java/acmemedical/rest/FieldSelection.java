@@ -0,0 +1,73 @@
+/********************************************************************************************************
+ * File:  FieldSelection.java Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Shariar (Shawn) Emami
+ *
+ */
+package acmemedical.rest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Parses comma separated query parameters such as <code>?fields=</code> (sparse fieldsets)
+ * and <code>?expand=</code> (fetch plans)
+ */
+public final class FieldSelection {
+
+    private static final String FIELD_SEPARATOR = ",";
+
+    private FieldSelection() {
+    }
+
+    /**
+     * @param parameter - name of the query parameter, for the error message
+     * @param fields - comma separated names as sent by the client, may be null
+     * @param selectable - names that may be selected
+     * @return requested names in request order without duplicates, or null if nothing was requested
+     * @throws StacklessClientErrorException (400) if a requested name is not selectable
+     */
+    public static List<String> parse(String parameter, String fields, List<String> selectable) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        List<String> selected = new ArrayList<>();
+        for (String field : fields.split(FIELD_SEPARATOR)) {
+            String name = field.strip();
+            if (name.isEmpty() || selected.contains(name)) {
+                continue;
+            }
+            if (!selectable.contains(name)) {
+                throw new StacklessClientErrorException("Unknown " + parameter + " '" + name + "', " + parameter + " may be any of " + selectable,
+                    Response.Status.BAD_REQUEST);
+            }
+            selected.add(name);
+        }
+        return selected.isEmpty() ? null : selected;
+    }
+
+    /**
+     * Every field selection and every set of expansions is a representation of its own, with an entity tag of its own
+     *
+     * @param selectedFields - result of {@link #parse} for <code>?fields=</code>, may be null
+     * @param expansions - result of {@link #parse} for <code>?expand=</code>, may be null
+     * @return suffix for the version tag of the entity, empty for its default representation
+     */
+    public static String tagSuffix(List<String> selectedFields, List<String> expansions) {
+        StringBuilder suffix = new StringBuilder();
+        if (selectedFields != null) {
+            // request order, it is the order of the JSON properties
+            selectedFields.forEach(field -> suffix.append('+').append(field));
+        }
+        if (expansions != null) {
+            // sorted, expansions only decide which associations are in the JSON
+            suffix.append("+expand");
+            new TreeSet<>(expansions).forEach(expansion -> suffix.append(':').append(expansion));
+        }
+        return suffix.toString();
+    }
+}
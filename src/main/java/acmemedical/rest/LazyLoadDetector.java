@@ -0,0 +1,128 @@
+/********************************************************************************************************
+ * File:  LazyLoadDetector.java
+ * Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Shariar (Shawn) Emami
+ *
+ */
+package acmemedical.rest;
+
+import static acmemedical.utility.MyConstants.DEFAULT_LAZY_LOAD_DETECTION;
+import static acmemedical.utility.MyConstants.LAZY_LOAD_DETECTION_PROPNAME;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.microprofile.config.ConfigProvider;
+
+/**
+ * Reports, per endpoint, every association that serialization reached without it having been fetched.
+ * <p>
+ * Responses are written after the service's transaction has ended, so each endpoint has to fetch what it
+ * returns (join fetch, entity graph / <code>?expand=</code>).  An unfetched association is never loaded
+ * lazily on the way out - it is left out of the JSON (see
+ * {@link acmemedical.rest.serializer.UnfetchedAssociationSerializerModifier}) and reported here:
+ * <ul>
+ * <li>off - just left out</li>
+ * <li>count - counted per endpoint and association, logged the first time (default)</li>
+ * <li>fail - the response fails with 500, so a missing fetch shows up as a failing test</li>
+ * </ul>
+ */
+@Provider
+public class LazyLoadDetector implements WriterInterceptor {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    private static final String OUTSIDE_JAX_RS = "(outside JAX-RS)";
+
+    public enum Mode {
+        OFF, COUNT, FAIL
+    }
+
+    private static final Mode MODE = Mode.valueOf(ConfigProvider.getConfig()
+        .getOptionalValue(LAZY_LOAD_DETECTION_PROPNAME, String.class)
+        .orElse(DEFAULT_LAZY_LOAD_DETECTION).strip().toUpperCase(Locale.ROOT));
+
+    // endpoint currently being written by this thread
+    private static final ThreadLocal<String> ENDPOINT = new ThreadLocal<>();
+
+    // endpoint -> "Entity.association" -> count
+    private static final Map<String, Map<String, LongAdder>> UNFETCHED = new ConcurrentHashMap<>();
+
+    @Context
+    protected ResourceInfo resourceInfo;
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException, WebApplicationException {
+        if (MODE == Mode.OFF || resourceInfo.getResourceMethod() == null) {
+            context.proceed();
+            return;
+        }
+        String previous = ENDPOINT.get();
+        ENDPOINT.set(resourceInfo.getResourceClass().getSimpleName() + "." + resourceInfo.getResourceMethod().getName());
+        try {
+            context.proceed();
+        }
+        finally {
+            ENDPOINT.set(previous);
+        }
+    }
+
+    /**
+     * Called by the serializer for an association it is about to leave out because it was not fetched
+     *
+     * @param entity - class of the entity that owns the association
+     * @param association - name of the association (JSON property)
+     * @throws IllegalStateException in fail mode
+     */
+    public static void unfetched(Class<?> entity, String association) {
+        if (MODE == Mode.OFF) {
+            return;
+        }
+        String endpoint = ENDPOINT.get() == null ? OUTSIDE_JAX_RS : ENDPOINT.get();
+        String property = entity.getSimpleName() + "." + association;
+        Map<String, LongAdder> counts = UNFETCHED.computeIfAbsent(endpoint, e -> new ConcurrentHashMap<>());
+        LongAdder count = counts.get(property);
+        if (count == null) {
+            count = counts.computeIfAbsent(property, p -> {
+                LOG.warn("{} serialized {} without fetching it, it is left out of the response", endpoint, property);
+                return new LongAdder();
+            });
+        }
+        count.increment();
+        if (MODE == Mode.FAIL) {
+            throw new IllegalStateException(endpoint + " did not fetch " + property + " before serializing it");
+        }
+    }
+
+    /**
+     * @return mode and, per endpoint, how often each association was reached unfetched
+     */
+    public static Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new TreeMap<>();
+        UNFETCHED.forEach((endpoint, counts) -> {
+            Map<String, Long> sums = new TreeMap<>();
+            counts.forEach((property, count) -> sums.put(property, count.sum()));
+            stats.put(endpoint, sums);
+        });
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("mode", MODE);
+        result.put("unfetched", stats);
+        return result;
+    }
+}
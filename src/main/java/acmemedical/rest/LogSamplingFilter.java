@@ -0,0 +1,63 @@
+/********************************************************************************************************
+ * File:  LogSamplingFilter.java
+ * Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Shariar (Shawn) Emami
+ *
+ */
+package acmemedical.rest;
+
+import static acmemedical.utility.MyConstants.DEBUG_LOG_HEADER;
+import static acmemedical.utility.MyConstants.DEFAULT_LOG_SAMPLE_RATE;
+import static acmemedical.utility.MyConstants.LOG_SAMPLE_RATE_PROPNAME;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.annotation.Priority;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.PreMatching;
+import jakarta.ws.rs.ext.Provider;
+
+import org.apache.logging.log4j.ThreadContext;
+import org.eclipse.microprofile.config.ConfigProvider;
+
+/**
+ * Picks the requests whose DEBUG logging (including Hibernate's SQL) is written:  1 in
+ * <code>log-sample-rate</code> requests, plus any request sent with <code>X-Debug-Log: true</code>.
+ * <p>
+ * Marks them in the log4j ThreadContext, the DynamicThresholdFilter in log4j2.xml does the rest.
+ */
+@Provider
+@PreMatching
+@Priority(Priorities.AUTHENTICATION - 100)
+public class LogSamplingFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    public static final String SAMPLED_KEY = "log-sampled";
+
+    private static final long SAMPLE_RATE = Long.parseLong(ConfigProvider.getConfig()
+        .getOptionalValue(LOG_SAMPLE_RATE_PROPNAME, String.class).orElse(DEFAULT_LOG_SAMPLE_RATE));
+
+    private static final AtomicLong REQUESTS = new AtomicLong();
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        if (Boolean.parseBoolean(requestContext.getHeaderString(DEBUG_LOG_HEADER))
+            || (SAMPLE_RATE > 0 && REQUESTS.incrementAndGet() % SAMPLE_RATE == 0)) {
+            ThreadContext.put(SAMPLED_KEY, Boolean.TRUE.toString());
+        }
+        else {
+            // pooled thread:  never inherit the mark of a request that did not get to its response filter
+            ThreadContext.remove(SAMPLED_KEY);
+        }
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        ThreadContext.remove(SAMPLED_KEY);
+    }
+}
@@ -0,0 +1,97 @@
+/********************************************************************************************************
+ * File:  NdjsonStreamingOutput.java
+ * Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Shariar (Shawn) Emami
+ *
+ */
+package acmemedical.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import jakarta.ws.rs.core.StreamingOutput;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import acmemedical.ejb.ACMEMedicalService;
+import acmemedical.entity.PojoBase;
+
+/**
+ * Streams the result of a named query as <code>application/x-ndjson</code>, one JSON document per line.<br>
+ * Rows are written to the response while the database cursor is still open, so neither the entity list nor
+ * the serialized response is ever held in memory.  The associations of the given entity graphs are fetched
+ * batch by batch along the way (see {@link ACMEMedicalService#streamAll}).
+ *
+ * @param <T> - type of entity streamed
+ */
+public class NdjsonStreamingOutput<T extends PojoBase> implements StreamingOutput {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    // Flush to the client every so many rows - small enough for a steady trickle, large enough to fill a chunk
+    private static final int FLUSH_EVERY_ROWS = 100;
+
+    private final ACMEMedicalService service;
+    private final Class<T> entity;
+    private final String namedQuery;
+    private final List<String> entityGraphNames;
+    private final ObjectMapper objectMapper;
+
+    public NdjsonStreamingOutput(ACMEMedicalService service, Class<T> entity, String namedQuery,
+        List<String> entityGraphNames, ObjectMapper objectMapper) {
+        this.service = service;
+        this.entity = entity;
+        this.namedQuery = namedQuery;
+        this.entityGraphNames = entityGraphNames;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException {
+        ObjectWriter rowWriter = objectMapper.writerFor(entity)
+            .withRootValueSeparator("\n")
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output, JsonEncoding.UTF8)) {
+            // The container owns the response stream
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            int[] written = { 0 };
+            try {
+                service.streamAll(entity, namedQuery, entityGraphNames, row -> {
+                    try {
+                        rowWriter.writeValue(generator, row);
+                        if (++written[0] % FLUSH_EVERY_ROWS == 0) {
+                            generator.flush();
+                        }
+                    }
+                    catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            catch (RuntimeException e) {
+                // The EJB container may wrap the client's IOException (e.g. client hung up) in an EJBException
+                for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                    if (cause instanceof UncheckedIOException ioe) {
+                        throw ioe.getCause();
+                    }
+                }
+                throw e;
+            }
+            if (written[0] > 0) {
+                generator.writeRaw('\n');
+            }
+            LOG.debug("streamed {} {} rows", written[0], entity.getSimpleName());
+        }
+    }
+}
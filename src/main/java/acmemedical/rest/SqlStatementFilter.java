@@ -0,0 +1,91 @@
+/********************************************************************************************************
+ * File:  SqlStatementFilter.java
+ * Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Shariar (Shawn) Emami
+ *
+ */
+package acmemedical.rest;
+
+import static acmemedical.utility.MyConstants.DEFAULT_SQL_REPEAT_WARN_THRESHOLD;
+import static acmemedical.utility.MyConstants.DEFAULT_SQL_STATEMENT_HEADERS;
+import static acmemedical.utility.MyConstants.DEFAULT_SQL_STATEMENT_WARN_THRESHOLD;
+import static acmemedical.utility.MyConstants.SQL_MAX_REPEATS_HEADER;
+import static acmemedical.utility.MyConstants.SQL_REPEAT_WARN_THRESHOLD_PROPNAME;
+import static acmemedical.utility.MyConstants.SQL_STATEMENTS_HEADER;
+import static acmemedical.utility.MyConstants.SQL_STATEMENT_HEADERS_PROPNAME;
+import static acmemedical.utility.MyConstants.SQL_STATEMENT_WARN_THRESHOLD_PROPNAME;
+
+import java.util.Map;
+
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.ext.Provider;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.ConfigProvider;
+
+import acmemedical.utility.SqlStatementInspector;
+
+/**
+ * Counts the SQL statements each request executes (see {@link SqlStatementInspector}) and how often its
+ * most repeated statement shape ran:
+ * <ul>
+ * <li>as <code>X-SQL-Statements</code> / <code>X-SQL-Max-Repeats</code> response headers, unless turned
+ * off (they are in the <code>prod</code> config profile)</li>
+ * <li>as a WARN, with the offending statement, when either goes over its threshold</li>
+ * </ul>
+ * Statements run while the response body is written (streamed responses) are not included.
+ */
+@Provider
+public class SqlStatementFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    private static final boolean HEADERS;
+    private static final int STATEMENT_WARN_THRESHOLD;
+    private static final int REPEAT_WARN_THRESHOLD;
+
+    static {
+        Config config = ConfigProvider.getConfig();
+        HEADERS = Boolean.parseBoolean(config.getOptionalValue(SQL_STATEMENT_HEADERS_PROPNAME, String.class)
+            .orElse(DEFAULT_SQL_STATEMENT_HEADERS));
+        STATEMENT_WARN_THRESHOLD = Integer.parseInt(config.getOptionalValue(SQL_STATEMENT_WARN_THRESHOLD_PROPNAME, String.class)
+            .orElse(DEFAULT_SQL_STATEMENT_WARN_THRESHOLD));
+        REPEAT_WARN_THRESHOLD = Integer.parseInt(config.getOptionalValue(SQL_REPEAT_WARN_THRESHOLD_PROPNAME, String.class)
+            .orElse(DEFAULT_SQL_REPEAT_WARN_THRESHOLD));
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        SqlStatementInspector.begin();
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        Map<String, Integer> shapes = SqlStatementInspector.end();
+        int statements = 0;
+        int maxRepeats = 0;
+        String mostRepeated = null;
+        for (Map.Entry<String, Integer> shape : shapes.entrySet()) {
+            statements += shape.getValue();
+            if (shape.getValue() > maxRepeats) {
+                maxRepeats = shape.getValue();
+                mostRepeated = shape.getKey();
+            }
+        }
+        if (HEADERS) {
+            responseContext.getHeaders().putSingle(SQL_STATEMENTS_HEADER, statements);
+            responseContext.getHeaders().putSingle(SQL_MAX_REPEATS_HEADER, maxRepeats);
+        }
+        if (statements > STATEMENT_WARN_THRESHOLD || maxRepeats > REPEAT_WARN_THRESHOLD) {
+            LOG.warn("{} {} executed {} SQL statements, {} of them the same (N+1?):  {}", requestContext.getMethod(),
+                requestContext.getUriInfo().getPath(), statements, maxRepeats, mostRepeated);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/********************************************************************************************************
+ * File:  StacklessClientErrorException.java Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Shariar (Shawn) Emami
+ *
+ */
+package acmemedical.rest;
+
+import jakarta.ws.rs.ClientErrorException;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * 4xx for the expected ways a request goes wrong (bad parameters, someone else's physician):  answered by
+ * {@link ClientErrorExceptionMapper}, never debugged, so it skips capturing a stack trace - by far the most
+ * expensive part of creating an exception.
+ */
+public class StacklessClientErrorException extends ClientErrorException {
+    private static final long serialVersionUID = 1L;
+
+    public StacklessClientErrorException(String message, Response.Status status) {
+        super(message, status);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
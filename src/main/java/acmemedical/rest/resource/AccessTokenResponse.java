@@ -0,0 +1,44 @@
+/********************************************************************************************************
+ * File:  AccessTokenResponse.java
+ * Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Shariar (Shawn) Emami
+ *
+ */
+package acmemedical.rest.resource;
+
+import java.io.Serializable;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Body of a successful token exchange, field names follow OAuth 2.0 (RFC 6749 section 5.1)
+ */
+public class AccessTokenResponse implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String accessToken;
+    private final long expiresIn;
+
+    public AccessTokenResponse(String accessToken, long expiresIn) {
+        this.accessToken = accessToken;
+        this.expiresIn = expiresIn;
+    }
+
+    @JsonProperty("access_token")
+    public String getAccessToken() {
+        return accessToken;
+    }
+
+    @JsonProperty("token_type")
+    public String getTokenType() {
+        return "Bearer";
+    }
+
+    @JsonProperty("expires_in")
+    public long getExpiresIn() {
+        return expiresIn;
+    }
+
+}
@@ -0,0 +1,69 @@
+/********************************************************************************************************
+ * File:  CredentialResource.java Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Shariar (Shawn) Emami
+ *
+ */
+package acmemedical.rest.resource;
+
+import static acmemedical.utility.MyConstants.ADMIN_ROLE;
+import static acmemedical.utility.MyConstants.CREDENTIAL_RESOURCE_NAME;
+import static acmemedical.utility.MyConstants.USER_ROLE;
+import static jakarta.servlet.http.HttpServletRequest.BASIC_AUTH;
+
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.inject.Inject;
+import jakarta.security.enterprise.SecurityContext;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.glassfish.soteria.WrappingCallerPrincipal;
+
+import acmemedical.rest.StacklessClientErrorException;
+import acmemedical.security.AuthenticatedUser;
+import acmemedical.security.BearerTokenService;
+
+/**
+ * Exchange Basic credentials (one PBKDF2 verify) for a short-lived bearer token that every later request
+ * can present instead - see {@link BearerTokenService}
+ */
+@Path(CREDENTIAL_RESOURCE_NAME)
+@Produces(MediaType.APPLICATION_JSON)
+public class CredentialResource {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    @Inject
+    protected SecurityContext sc;
+
+    @Inject
+    protected BearerTokenService tokenService;
+
+    @POST
+    @RolesAllowed({ADMIN_ROLE, USER_ROLE})
+    public Response issueToken(@HeaderParam(HttpHeaders.AUTHORIZATION) String authHeader) {
+        // A token must not be able to mint its successor, otherwise it never really expires
+        if (authHeader == null || !authHeader.regionMatches(true, 0, BASIC_AUTH, 0, BASIC_AUTH.length())) {
+            throw new StacklessClientErrorException("Tokens are only issued in exchange for Basic credentials", Response.Status.FORBIDDEN);
+        }
+        WrappingCallerPrincipal wCallerPrincipal = (WrappingCallerPrincipal) sc.getCallerPrincipal();
+        AuthenticatedUser caller = (AuthenticatedUser) wCallerPrincipal.getWrapped();
+        LOG.debug("issuing bearer token for {}", caller);
+        String token = tokenService.issue(caller);
+        CacheControl noStore = new CacheControl();
+        noStore.setNoStore(true);
+        Response response = Response.ok(new AccessTokenResponse(token, tokenService.getTtlSeconds()))
+            .cacheControl(noStore)
+            .build();
+        return response;
+    }
+}
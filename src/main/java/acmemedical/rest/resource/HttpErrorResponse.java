@@ -11,11 +11,30 @@
 package acmemedical.rest.resource;
 
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+
+import jakarta.ws.rs.core.Response;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 public class HttpErrorResponse implements Serializable {
     private static final long serialVersionUID = 1L;
+
+    private static final ObjectWriter WRITER = new ObjectMapper().writerFor(HttpErrorResponse.class);
+    private static final int MAX_STATUS_CODE = 599;
+    // JSON body of every status code Response.Status knows with its standard reason phrase, rendered once:
+    // a 401 or 404 is then answered without building (and garbage-collecting) a response object and its JSON
+    private static final byte[][] STANDARD_JSON = new byte[MAX_STATUS_CODE + 1][];
+
+    static {
+        for (Response.Status status : Response.Status.values()) {
+            STANDARD_JSON[status.getStatusCode()] = render(status.getStatusCode(), status.getReasonPhrase());
+        }
+    }
     
     private final int statusCode;
     private final String reasonPhrase;
@@ -35,4 +54,45 @@ public class HttpErrorResponse implements Serializable {
         return reasonPhrase;
     }
 
-}
\ No newline at end of file
+    /**
+     * @param statusCode - HTTP status code
+     * @param reasonPhrase - reason phrase, null for the standard one (or that of the status code's class)
+     * @return JSON of an HttpErrorResponse - for a standard status code and reason phrase the same, shared
+     *         array every time, which must not be modified
+     */
+    public static byte[] toJson(int statusCode, String reasonPhrase) {
+        byte[] standard = statusCode >= 0 && statusCode <= MAX_STATUS_CODE ? STANDARD_JSON[statusCode] : null;
+        if (standard != null
+            && (reasonPhrase == null || reasonPhrase.equals(Response.Status.fromStatusCode(statusCode).getReasonPhrase()))) {
+            return standard;
+        }
+        return render(statusCode, Objects.requireNonNullElse(reasonPhrase, genericReasonPhrase(statusCode)));
+    }
+
+    // A status code Response.Status does not know (e.g. 422) still gets a readable phrase:  the one of its class
+    protected static String genericReasonPhrase(int statusCode) {
+        switch (Response.Status.Family.familyOf(statusCode)) {
+            case INFORMATIONAL:
+                return "Informational";
+            case SUCCESSFUL:
+                return "Success";
+            case REDIRECTION:
+                return "Redirection";
+            case CLIENT_ERROR:
+                return "Client Error";
+            case SERVER_ERROR:
+                return "Server Error";
+            default:
+                return "";
+        }
+    }
+
+    protected static byte[] render(int statusCode, String reasonPhrase) {
+        try {
+            return WRITER.writeValueAsBytes(new HttpErrorResponse(statusCode, reasonPhrase));
+        }
+        catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
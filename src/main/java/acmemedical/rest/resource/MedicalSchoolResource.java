@@ -11,27 +11,56 @@ import java.util.List;
 
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.ejb.EJB;
+import jakarta.ejb.EJBException;
 import jakarta.inject.Inject;
 import jakarta.security.enterprise.SecurityContext;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.Response.ResponseBuilder;
 import static acmemedical.utility.MyConstants.ADMIN_ROLE;
 import static acmemedical.utility.MyConstants.USER_ROLE;
 import jakarta.ws.rs.core.Response.Status;
+import jakarta.ws.rs.core.UriInfo;
+import jakarta.ws.rs.ext.Providers;
 import static acmemedical.utility.MyConstants.MEDICAL_SCHOOL_RESOURCE_NAME;
+import static acmemedical.utility.MyConstants.APPLICATION_NDJSON_LOW_QS;
+import static acmemedical.utility.MyConstants.DEFAULT_PAGE_AFTER;
+import static acmemedical.utility.MyConstants.DEFAULT_PAGE_LIMIT;
+import static acmemedical.utility.MyConstants.ESTIMATED_TOTAL_HEADER;
+import static acmemedical.utility.MyConstants.EXPAND_CERTIFICATES;
+import static acmemedical.utility.MyConstants.EXPAND_QUERY_PARAM;
+import static acmemedical.utility.MyConstants.EXPAND_TRAININGS;
+import static acmemedical.utility.MyConstants.FIELDS_QUERY_PARAM;
+import static acmemedical.utility.MyConstants.MAX_PAGE_LIMIT;
+import static acmemedical.utility.MyConstants.NEXT_CURSOR_HEADER;
+import static acmemedical.utility.MyConstants.PAGE_AFTER_QUERY_PARAM;
+import static acmemedical.utility.MyConstants.PAGE_ESTIMATE_QUERY_PARAM;
+import static acmemedical.utility.MyConstants.PAGE_LIMIT_QUERY_PARAM;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import acmemedical.ejb.ACMEMedicalService;
+import acmemedical.ejb.KeysetPage;
+import acmemedical.rest.FieldSelection;
+import acmemedical.rest.NdjsonStreamingOutput;
+import acmemedical.rest.StacklessClientErrorException;
 import acmemedical.entity.MedicalTraining;
 import acmemedical.entity.MedicalSchool;
 
@@ -42,28 +71,98 @@ public class MedicalSchoolResource {
     
     private static final Logger LOG = LogManager.getLogger();
 
+    // ?expand= values, see MedicalSchool's named entity graphs
+    protected static final List<String> EXPANSIONS = List.of(EXPAND_TRAININGS, EXPAND_CERTIFICATES);
+
     @EJB
     protected ACMEMedicalService service;
 
     @Inject
     protected SecurityContext sc;
+
+    @Context
+    protected UriInfo uriInfo;
+
+    @Context
+    protected Providers providers;
+
+    @Context
+    protected Request request;
     
     @GET
-    public Response getMedicalSchools() {
-        LOG.debug("Retrieving all medical schools...");
-        List<MedicalSchool> medicalSchools = service.getAllMedicalSchools();
-        LOG.debug("Medical schools found = {}", medicalSchools);
-        Response response = Response.ok(medicalSchools).build();
+    public Response getMedicalSchools(@QueryParam(PAGE_AFTER_QUERY_PARAM) @DefaultValue(DEFAULT_PAGE_AFTER) int after,
+        @QueryParam(PAGE_LIMIT_QUERY_PARAM) @DefaultValue(DEFAULT_PAGE_LIMIT) int limit,
+        @QueryParam(PAGE_ESTIMATE_QUERY_PARAM) boolean estimate, @QueryParam(FIELDS_QUERY_PARAM) String fields) {
+        LOG.debug("Retrieving medical schools after id {}, limit {}...", after, limit);
+        if (after < 0 || limit < 1 || limit > MAX_PAGE_LIMIT) {
+            throw new StacklessClientErrorException("Paging requires after >= 0 and 1 <= limit <= " + MAX_PAGE_LIMIT, Status.BAD_REQUEST);
+        }
+        List<String> selectedFields = FieldSelection.parse(FIELDS_QUERY_PARAM, fields, MedicalSchool.SELECTABLE_FIELDS);
+        KeysetPage<?> page = selectedFields == null ? service.getMedicalSchoolsPage(after, limit)
+            : service.getFieldsPage(MedicalSchool.class, selectedFields, after, limit);
+        LOG.debug("Medical schools found = {}", page.getItems().size());
+        ResponseBuilder builder = Response.ok(page.getItems());
+        if (page.hasNext()) {
+            builder.header(NEXT_CURSOR_HEADER, page.getNextCursor())
+                .link(uriInfo.getRequestUriBuilder().replaceQueryParam(PAGE_AFTER_QUERY_PARAM, page.getNextCursor()).build(), "next");
+        }
+        if (estimate) {
+            builder.header(ESTIMATED_TOTAL_HEADER, service.getEstimatedCount(MedicalSchool.class));
+        }
+        Response response = builder.build();
+        return response;
+    }
+
+    @GET
+    @Produces(APPLICATION_NDJSON_LOW_QS)
+    public Response streamMedicalSchools() {
+        LOG.debug("Streaming all medical schools...");
+        ObjectMapper objectMapper = providers.getContextResolver(ObjectMapper.class, MediaType.APPLICATION_JSON_TYPE)
+            .getContext(MedicalSchool.class);
+        Response response = Response.ok(
+            new NdjsonStreamingOutput<>(service, MedicalSchool.class, MedicalSchool.ALL_MEDICAL_SCHOOLS_QUERY_NAME,
+                MedicalSchool.DEFAULT_FETCH_GRAPHS, objectMapper)).build();
         return response;
     }
     
     @GET
     // TODO MSR01 - Specify the roles allowed for this method
     @Path("/{medicalSchoolId}")
-    public Response getMedicalSchoolById(@PathParam("medicalSchoolId") int medicalSchoolId) {
+    public Response getMedicalSchoolById(@PathParam("medicalSchoolId") int medicalSchoolId,
+        @QueryParam(FIELDS_QUERY_PARAM) String fields, @QueryParam(EXPAND_QUERY_PARAM) String expand) {
         LOG.debug("Retrieving medical school with id = {}", medicalSchoolId);
-        MedicalSchool medicalSchool = service.getMedicalSchoolById(medicalSchoolId);
-        Response response = Response.ok(medicalSchool).build();
+        List<String> selectedFields = FieldSelection.parse(FIELDS_QUERY_PARAM, fields, MedicalSchool.SELECTABLE_FIELDS);
+        List<String> expansions = FieldSelection.parse(EXPAND_QUERY_PARAM, expand, EXPANSIONS);
+        if (selectedFields != null && expansions != null) {
+            throw new StacklessClientErrorException(FIELDS_QUERY_PARAM + " only selects basic attributes, it cannot be combined with " + EXPAND_QUERY_PARAM, Status.BAD_REQUEST);
+        }
+        // The version fingerprint decides a 304 without running the JOIN FETCH
+        String versionTag = service.getMedicalSchoolVersionTag(medicalSchoolId);
+        if (versionTag == null) {
+            return Response.status(Status.NOT_FOUND).build();
+        }
+        // every field selection and every set of expansions is a representation of its own and needs a tag of its own
+        EntityTag etag = new EntityTag(versionTag + FieldSelection.tagSuffix(selectedFields, expansions));
+        ResponseBuilder builder = request.evaluatePreconditions(etag);
+        if (builder == null) {
+            Object medicalSchool;
+            if (selectedFields != null) {
+                // only the selected columns, no JOIN FETCH of trainings
+                medicalSchool = service.getFieldsById(MedicalSchool.class, selectedFields, medicalSchoolId);
+            } else if (expansions != null) {
+                // certificates hang off trainings, so asking for them fetches both
+                String entityGraphName = expansions.contains(EXPAND_CERTIFICATES) ? MedicalSchool.WITH_TRAININGS_AND_CERTIFICATES_GRAPH
+                    : MedicalSchool.WITH_TRAININGS_GRAPH;
+                medicalSchool = service.getByIdWithGraph(MedicalSchool.class, medicalSchoolId, entityGraphName);
+            } else {
+                medicalSchool = service.getMedicalSchoolById(medicalSchoolId);
+            }
+            builder = Response.ok(medicalSchool).tag(etag);
+        }
+        CacheControl revalidate = new CacheControl();
+        revalidate.setPrivate(true);
+        revalidate.setNoCache(true);
+        Response response = builder.cacheControl(revalidate).build();
         return response;
     }
 
@@ -83,15 +182,29 @@ public class MedicalSchoolResource {
     public Response addMedicalSchool(MedicalSchool newMedicalSchool) {
         LOG.debug("Adding a new medical school = {}", newMedicalSchool);
         if (service.isDuplicated(newMedicalSchool)) {
-            HttpErrorResponse err = new HttpErrorResponse(Status.CONFLICT.getStatusCode(), "Entity already exists");
-            return Response.status(Status.CONFLICT).entity(err).build();
+            return alreadyExists();
         }
         else {
-            MedicalSchool tempMedicalSchool = service.persistMedicalSchool(newMedicalSchool);
+            MedicalSchool tempMedicalSchool;
+            try {
+                tempMedicalSchool = service.persistMedicalSchool(newMedicalSchool);
+            }
+            catch (EJBException e) {
+                // inserted by another node since this node's name filter was last rebuilt
+                if (ACMEMedicalService.isDuplicateKey(e)) {
+                    return alreadyExists();
+                }
+                throw e;
+            }
             return Response.ok(tempMedicalSchool).build();
         }
     }
 
+    protected static Response alreadyExists() {
+        HttpErrorResponse err = new HttpErrorResponse(Status.CONFLICT.getStatusCode(), "Entity already exists");
+        return Response.status(Status.CONFLICT).entity(err).build();
+    }
+
     @RolesAllowed({ADMIN_ROLE})
     @POST
     @Path("/{medicalSchoolId}/medicaltraining")
@@ -99,6 +212,9 @@ public class MedicalSchoolResource {
         LOG.debug("Adding a new MedicalTraining to medical school with id = {}", msId);
         
         MedicalSchool ms = service.getMedicalSchoolById(msId);
+        if (ms == null) {
+            return Response.status(Status.NOT_FOUND).build();
+        }
         newMedicalTraining.setMedicalSchool(ms);
         ms.getMedicalTrainings().add(newMedicalTraining);
         service.updateMedicalSchool(msId, ms);
@@ -112,8 +228,17 @@ public class MedicalSchoolResource {
     public Response updateMedicalSchool(@PathParam("medicalSchoolId") int msId, MedicalSchool updatingMedicalSchool) {
         LOG.debug("Updating a specific medical school with id = {}", msId);
         Response response = null;
-        MedicalSchool updatedMedicalSchool = service.updateMedicalSchool(msId, updatingMedicalSchool);
-        response = Response.ok(updatedMedicalSchool).build();
+        try {
+            MedicalSchool updatedMedicalSchool = service.updateMedicalSchool(msId, updatingMedicalSchool);
+            response = Response.ok(updatedMedicalSchool).build();
+        }
+        catch (EJBException e) {
+            // renamed to the name of another medical school
+            if (!ACMEMedicalService.isDuplicateKey(e)) {
+                throw e;
+            }
+            response = alreadyExists();
+        }
         return response;
     }
     
@@ -0,0 +1,129 @@
+/********************************************************************************************************
+ * File:  MetricsResource.java Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Shariar (Shawn) Emami
+ *
+ */
+package acmemedical.rest.resource;
+
+import static acmemedical.utility.MyConstants.ADMIN_ROLE;
+import static acmemedical.utility.MyConstants.METRICS_BULK_DELETES_PATH;
+import static acmemedical.utility.MyConstants.METRICS_CREDENTIAL_CACHE_PATH;
+import static acmemedical.utility.MyConstants.METRICS_LAZY_LOADS_PATH;
+import static acmemedical.utility.MyConstants.METRICS_NAME_FILTERS_PATH;
+import static acmemedical.utility.MyConstants.METRICS_ORM_PATH;
+import static acmemedical.utility.MyConstants.METRICS_RESOURCE_NAME;
+import static acmemedical.utility.MyConstants.METRICS_SHARED_CACHE_PATH;
+import static acmemedical.utility.MyConstants.METRICS_WRITE_LOCKS_PATH;
+
+import java.util.Map;
+
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.ejb.EJB;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import acmemedical.ejb.ACMEMedicalService;
+import acmemedical.ejb.UniqueNameFilters;
+import acmemedical.rest.LazyLoadDetector;
+import acmemedical.security.VerifiedCredentialCache;
+
+/**
+ * Admin-only view of the application's internal counters
+ */
+@Path(METRICS_RESOURCE_NAME)
+@Produces(MediaType.APPLICATION_JSON)
+@RolesAllowed({ADMIN_ROLE})
+public class MetricsResource {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    @EJB
+    protected ACMEMedicalService service;
+
+    @EJB
+    protected UniqueNameFilters nameFilters;
+
+    @Inject
+    protected VerifiedCredentialCache credentialCache;
+
+    @GET
+    @Path(METRICS_WRITE_LOCKS_PATH)
+    public Response getWriteLockStatistics() {
+        LOG.debug("retrieving write lock statistics ...");
+        Response response = Response.ok(service.getWriteLockStatistics()).build();
+        return response;
+    }
+
+    @GET
+    @Path(METRICS_CREDENTIAL_CACHE_PATH)
+    public Response getCredentialCacheStatistics() {
+        LOG.debug("retrieving verified credential cache statistics ...");
+        Response response = Response.ok(credentialCache.getStatistics()).build();
+        return response;
+    }
+
+    @GET
+    @Path(METRICS_SHARED_CACHE_PATH)
+    public Response getSharedCacheStatistics() {
+        LOG.debug("retrieving shared (second-level) cache statistics ...");
+        Response response = Response.ok(service.getSharedCacheStatistics()).build();
+        return response;
+    }
+
+    @GET
+    @Path(METRICS_NAME_FILTERS_PATH)
+    public Response getNameFilterStatistics() {
+        LOG.debug("retrieving unique name filter statistics ...");
+        Response response = Response.ok(nameFilters.getStatistics()).build();
+        return response;
+    }
+
+    @GET
+    @Path(METRICS_BULK_DELETES_PATH)
+    public Response getBulkDeleteStatistics() {
+        LOG.debug("retrieving bulk delete statistics ...");
+        Response response = Response.ok(service.getBulkDeleteStatistics()).build();
+        return response;
+    }
+
+    @GET
+    @Path(METRICS_LAZY_LOADS_PATH)
+    public Response getLazyLoadStatistics() {
+        LOG.debug("retrieving unfetched association statistics ...");
+        Response response = Response.ok(LazyLoadDetector.getStatistics()).build();
+        return response;
+    }
+
+    @GET
+    @Path(METRICS_ORM_PATH)
+    public Response getOrmStatistics() {
+        LOG.debug("retrieving ORM statistics ...");
+        Response response = Response.ok(service.getOrmStatistics()).build();
+        return response;
+    }
+
+    /**
+     * Start the ORM statistics over, e.g. right before a load test
+     *
+     * @return the statistics as they were just before the reset
+     */
+    @DELETE
+    @Path(METRICS_ORM_PATH)
+    public Response resetOrmStatistics() {
+        LOG.debug("resetting ORM statistics ...");
+        Map<String, Object> before = service.getOrmStatistics();
+        service.resetOrmStatistics();
+        Response response = Response.ok(before).build();
+        return response;
+    }
+}
@@ -9,38 +9,86 @@
 package acmemedical.rest.resource;
 
 import static acmemedical.utility.MyConstants.ADMIN_ROLE;
+import static acmemedical.utility.MyConstants.APPLICATION_NDJSON;
+import static acmemedical.utility.MyConstants.APPLICATION_NDJSON_LOW_QS;
+import static acmemedical.utility.MyConstants.DEFAULT_IMPORT_CHUNK_SIZE;
+import static acmemedical.utility.MyConstants.DEFAULT_PAGE_AFTER;
+import static acmemedical.utility.MyConstants.DEFAULT_PAGE_LIMIT;
+import static acmemedical.utility.MyConstants.ESTIMATED_TOTAL_HEADER;
+import static acmemedical.utility.MyConstants.EXPAND_CERTIFICATES;
+import static acmemedical.utility.MyConstants.EXPAND_PRESCRIPTIONS;
+import static acmemedical.utility.MyConstants.EXPAND_QUERY_PARAM;
+import static acmemedical.utility.MyConstants.FIELDS_QUERY_PARAM;
+import static acmemedical.utility.MyConstants.IMPORT_CHUNK_SIZE_PROPNAME;
+import static acmemedical.utility.MyConstants.MAX_PAGE_LIMIT;
+import static acmemedical.utility.MyConstants.NEXT_CURSOR_HEADER;
+import static acmemedical.utility.MyConstants.PAGE_AFTER_QUERY_PARAM;
+import static acmemedical.utility.MyConstants.PAGE_ESTIMATE_QUERY_PARAM;
+import static acmemedical.utility.MyConstants.PAGE_LIMIT_QUERY_PARAM;
+import static acmemedical.utility.MyConstants.PHYSICIAN_CREDENTIALS_RESOURCE_PATH;
+import static acmemedical.utility.MyConstants.PHYSICIAN_IMPORT_RESOURCE_PATH;
 import static acmemedical.utility.MyConstants.PHYSICIAN_PATIENT_MEDICINE_RESOURCE_PATH;
 import static acmemedical.utility.MyConstants.PHYSICIAN_RESOURCE_NAME;
+import static acmemedical.utility.MyConstants.PHYSICIANS_PATIENTS_MEDICINE_RESOURCE_PATH;
 import static acmemedical.utility.MyConstants.RESOURCE_PATH_ID_ELEMENT;
 import static acmemedical.utility.MyConstants.RESOURCE_PATH_ID_PATH;
 import static acmemedical.utility.MyConstants.USER_ROLE;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.ejb.EJB;
+import jakarta.ejb.EJBException;
 import jakarta.inject.Inject;
 import jakarta.security.enterprise.SecurityContext;
 import jakarta.ws.rs.Consumes;
-import jakarta.ws.rs.ForbiddenException;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.Response.ResponseBuilder;
 import jakarta.ws.rs.core.Response.Status;
+import jakarta.ws.rs.core.UriInfo;
+import jakarta.ws.rs.ext.Providers;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.glassfish.soteria.WrappingCallerPrincipal;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import acmemedical.ejb.ACMEMedicalService;
+import acmemedical.ejb.KeysetPage;
+import acmemedical.ejb.MedicineAssignment;
+import acmemedical.ejb.PhysicianImportResult;
+import acmemedical.ejb.UserProvisioningWorker;
+import acmemedical.rest.FieldSelection;
+import acmemedical.rest.NdjsonStreamingOutput;
+import acmemedical.rest.StacklessClientErrorException;
 import acmemedical.entity.Medicine;
-import acmemedical.entity.SecurityUser;
 import acmemedical.entity.Physician;
+import acmemedical.entity.UserProvisioning;
+import acmemedical.security.AuthenticatedUser;
 
 @Path(PHYSICIAN_RESOURCE_NAME)
 @Consumes(MediaType.APPLICATION_JSON)
@@ -49,19 +97,71 @@ public class PhysicianResource {
 
     private static final Logger LOG = LogManager.getLogger();
 
+    // ?expand= values and the named entity graph that fetches each one - several are fetched one query per
+    // collection, never as a join of two collections (their cartesian product)
+    protected static final List<String> EXPANSIONS = List.of(EXPAND_CERTIFICATES, EXPAND_PRESCRIPTIONS);
+    protected static final Map<String, String> EXPAND_GRAPHS = Map.of(
+        EXPAND_CERTIFICATES, Physician.WITH_CERTIFICATES_GRAPH,
+        EXPAND_PRESCRIPTIONS, Physician.WITH_PRESCRIPTIONS_GRAPH);
+
     @EJB
     protected ACMEMedicalService service;
 
+    @EJB
+    protected UserProvisioningWorker provisioningWorker;
+
     @Inject
     protected SecurityContext sc;
 
+    @Context
+    protected UriInfo uriInfo;
+
+    @Context
+    protected Providers providers;
+
+    @Context
+    protected Request request;
+
+    @Inject
+    @ConfigProperty(name = IMPORT_CHUNK_SIZE_PROPNAME, defaultValue = DEFAULT_IMPORT_CHUNK_SIZE)
+    protected int importChunkSize;
+
     @GET
     //Only a user with the SecurityRole ‘ADMIN_ROLE’ can get the list of all physicians.
     @RolesAllowed({ADMIN_ROLE})
-    public Response getPhysicians() {
-        LOG.debug("retrieving all physicians ...");
-        List<Physician> physicians = service.getAllPhysicians();
-        Response response = Response.ok(physicians).build();
+    public Response getPhysicians(@QueryParam(PAGE_AFTER_QUERY_PARAM) @DefaultValue(DEFAULT_PAGE_AFTER) int after,
+        @QueryParam(PAGE_LIMIT_QUERY_PARAM) @DefaultValue(DEFAULT_PAGE_LIMIT) int limit,
+        @QueryParam(PAGE_ESTIMATE_QUERY_PARAM) boolean estimate, @QueryParam(FIELDS_QUERY_PARAM) String fields) {
+        LOG.debug("retrieving physicians after id {}, limit {} ...", after, limit);
+        if (after < 0 || limit < 1 || limit > MAX_PAGE_LIMIT) {
+            throw new StacklessClientErrorException("Paging requires after >= 0 and 1 <= limit <= " + MAX_PAGE_LIMIT, Status.BAD_REQUEST);
+        }
+        List<String> selectedFields = FieldSelection.parse(FIELDS_QUERY_PARAM, fields, Physician.SELECTABLE_FIELDS);
+        KeysetPage<?> page = selectedFields == null ? service.getPhysiciansPage(after, limit)
+            : service.getFieldsPage(Physician.class, selectedFields, after, limit);
+        ResponseBuilder builder = Response.ok(page.getItems());
+        if (page.hasNext()) {
+            builder.header(NEXT_CURSOR_HEADER, page.getNextCursor())
+                .link(uriInfo.getRequestUriBuilder().replaceQueryParam(PAGE_AFTER_QUERY_PARAM, page.getNextCursor()).build(), "next");
+        }
+        if (estimate) {
+            builder.header(ESTIMATED_TOTAL_HEADER, service.getEstimatedCount(Physician.class));
+        }
+        Response response = builder.build();
+        return response;
+    }
+
+    @GET
+    //Only a user with the SecurityRole ‘ADMIN_ROLE’ can export all physicians.
+    @RolesAllowed({ADMIN_ROLE})
+    @Produces(APPLICATION_NDJSON_LOW_QS)
+    public Response streamPhysicians() {
+        LOG.debug("streaming all physicians ...");
+        ObjectMapper objectMapper = providers.getContextResolver(ObjectMapper.class, MediaType.APPLICATION_JSON_TYPE)
+            .getContext(Physician.class);
+        Response response = Response.ok(
+            new NdjsonStreamingOutput<>(service, Physician.class, Physician.ALL_PHYSICIANS_QUERY_NAME,
+                Physician.DEFAULT_FETCH_GRAPHS, objectMapper)).build();
         return response;
     }
 
@@ -69,23 +169,26 @@ public class PhysicianResource {
     //A user with either the role ‘ADMIN_ROLE’ or ‘USER_ROLE’ can get a specific physician.
     @RolesAllowed({ADMIN_ROLE, USER_ROLE})
     @Path(RESOURCE_PATH_ID_PATH)
-    public Response getPhysicianById(@PathParam(RESOURCE_PATH_ID_ELEMENT) int id) {
-        LOG.debug("try to retrieve specific physician " + id);
+    public Response getPhysicianById(@PathParam(RESOURCE_PATH_ID_ELEMENT) int id, @QueryParam(FIELDS_QUERY_PARAM) String fields,
+        @QueryParam(EXPAND_QUERY_PARAM) String expand) {
+        LOG.debug("try to retrieve specific physician {}", id);
         Response response = null;
-        Physician physician = null;
+        List<String> selectedFields = FieldSelection.parse(FIELDS_QUERY_PARAM, fields, Physician.SELECTABLE_FIELDS);
+        List<String> expansions = FieldSelection.parse(EXPAND_QUERY_PARAM, expand, EXPANSIONS);
+        if (selectedFields != null && expansions != null) {
+            throw new StacklessClientErrorException(FIELDS_QUERY_PARAM + " only selects basic attributes, it cannot be combined with " + EXPAND_QUERY_PARAM, Status.BAD_REQUEST);
+        }
 
         if (sc.isCallerInRole(ADMIN_ROLE)) {
-        	physician = service.getPhysicianById(id);
-            response = Response.status(physician == null ? Status.NOT_FOUND : Status.OK).entity(physician).build();
+            response = getPhysicianIfModified(id, selectedFields, expansions);
         } else if (sc.isCallerInRole(USER_ROLE)) {
             WrappingCallerPrincipal wCallerPrincipal = (WrappingCallerPrincipal) sc.getCallerPrincipal();
-            SecurityUser sUser = (SecurityUser) wCallerPrincipal.getWrapped();
-            physician = sUser.getPhysician();
-            if (physician != null && physician.getId() == id) {
-                response = Response.status(Status.OK).entity(physician).build();
+            AuthenticatedUser caller = (AuthenticatedUser) wCallerPrincipal.getWrapped();
+            if (caller.ownsPhysician(id)) {
+                response = getPhysicianIfModified(id, selectedFields, expansions);
             } else {
             	//disallows a ‘USER_ROLE’ user from getting a physician that is not linked to the SecurityUser.
-                throw new ForbiddenException("User trying to access resource it does not own (wrong userid)");
+                throw new StacklessClientErrorException("User trying to access resource it does not own (wrong userid)", Status.FORBIDDEN);
             }
         } else {
             response = Response.status(Status.BAD_REQUEST).build();
@@ -93,18 +196,153 @@ public class PhysicianResource {
         return response;
     }
 
+    /**
+     * 304 if the client's If-None-Match still matches the physician's version tag, which costs only the
+     * fingerprint query; otherwise the physician (only its selected fields, or along with the associations of
+     * an entity graph) with its current ETag
+     */
+    protected Response getPhysicianIfModified(int id, List<String> selectedFields, List<String> expansions) {
+        String versionTag = service.getPhysicianVersionTag(id);
+        if (versionTag == null) {
+            return Response.status(Status.NOT_FOUND).build();
+        }
+        // every field selection and every set of expansions is a representation of its own and needs a tag of its own
+        EntityTag etag = new EntityTag(versionTag + FieldSelection.tagSuffix(selectedFields, expansions));
+        ResponseBuilder builder = request.evaluatePreconditions(etag);
+        if (builder == null) {
+            // A write between the two reads only makes the tag older than the body: the next poll gets a 200 again
+            Object physician;
+            if (selectedFields != null) {
+                physician = service.getFieldsById(Physician.class, selectedFields, id);
+            } else if (expansions != null) {
+                List<String> graphs = new ArrayList<>();
+                expansions.forEach(expansion -> graphs.add(EXPAND_GRAPHS.get(expansion)));
+                physician = service.getByIdWithGraphs(Physician.class, id, graphs);
+            } else {
+                physician = service.getByIdWithGraphs(Physician.class, id, Physician.DEFAULT_FETCH_GRAPHS);
+            }
+            builder = Response.ok(physician).tag(etag);
+        }
+        // clients may keep a copy but have to check its ETag with us before using it
+        CacheControl revalidate = new CacheControl();
+        revalidate.setPrivate(true);
+        revalidate.setNoCache(true);
+        Response response = builder.cacheControl(revalidate).build();
+        return response;
+    }
+
     @POST
     //Only a user with the SecurityRole ‘ADMIN_ROLE’ can add a new physician.
     @RolesAllowed({ADMIN_ROLE})
     public Response addPhysician(Physician newPhysician) {
         Response response = null;
+        // Physician row and its user_provisioning row commit together ...
         Physician newPhysicianWithIdTimestamps = service.persistPhysician(newPhysician);
-        // Build a SecurityUser linked to the new physician
-        service.buildUserForNewPhysician(newPhysicianWithIdTimestamps);
+        // ... then the SecurityUser linked to the new physician is built in the background,
+        // GET /physician/{id}/credential shows when it is READY
+        provisioningWorker.submit(newPhysicianWithIdTimestamps.getId());
         response = Response.ok(newPhysicianWithIdTimestamps).build();
         return response;
     }
 
+    @POST
+    //Only a user with the SecurityRole ‘ADMIN_ROLE’ can bulk import physicians.
+    @RolesAllowed({ADMIN_ROLE})
+    @Path(PHYSICIAN_IMPORT_RESOURCE_PATH)
+    @Consumes({MediaType.APPLICATION_JSON, APPLICATION_NDJSON})
+    public Response importPhysicians(InputStream physicianStream) throws IOException {
+        LOG.debug("importing physicians in chunks of {} ...", importChunkSize);
+        ObjectMapper objectMapper = providers.getContextResolver(ObjectMapper.class, MediaType.APPLICATION_JSON_TYPE)
+            .getContext(Physician.class);
+        List<PhysicianImportResult> results = new ArrayList<>();
+        String malformedInput = null;
+        // A top-level JSON array is read element by element and NDJSON line by line,
+        // so no more than one chunk of physicians is ever held in memory
+        try (MappingIterator<Physician> physicians = objectMapper.readerFor(Physician.class).readValues(physicianStream)) {
+            List<Physician> chunk = new ArrayList<>(importChunkSize);
+            while (true) {
+                try {
+                    if (!physicians.hasNextValue()) {
+                        break;
+                    }
+                    chunk.add(physicians.nextValue());
+                }
+                catch (JsonProcessingException e) {
+                    // cannot resynchronize after a syntax error: keep what was read so far, report the rest
+                    malformedInput = "malformed input, import stopped: " + e.getOriginalMessage();
+                    break;
+                }
+                if (chunk.size() == importChunkSize) {
+                    importChunk(chunk, results);
+                    chunk.clear();
+                }
+            }
+            importChunk(chunk, results);
+        }
+        if (malformedInput != null) {
+            results.add(PhysicianImportResult.rejected(results.size(), null, malformedInput));
+        }
+        Map<PhysicianImportResult.Outcome, Integer> totals = new EnumMap<>(PhysicianImportResult.Outcome.class);
+        for (PhysicianImportResult.Outcome outcome : PhysicianImportResult.Outcome.values()) {
+            totals.put(outcome, 0);
+        }
+        results.forEach(r -> totals.merge(r.getOutcome(), 1, Integer::sum));
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("totals", totals);
+        report.put("rows", results);
+        Response response = Response.ok(report).build();
+        return response;
+    }
+
+    /**
+     * Hash the passwords of a chunk's valid physicians on all cores, then insert it in its own transaction.  A
+     * chunk that fails is rolled back on its own:  its rejected rows are still reported as REJECTED, the rest as
+     * FAILED; chunks already committed stay.
+     */
+    protected void importChunk(List<Physician> chunk, List<PhysicianImportResult> results) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        int firstRow = results.size();
+        // PBKDF2 is by far the most expensive part of an import:  none for the rows that are rejected anyway
+        PhysicianImportResult[] rejected = service.validateImport(chunk, firstRow);
+        int valid = 0;
+        for (PhysicianImportResult result : rejected) {
+            if (result == null) {
+                valid++;
+            }
+        }
+        Iterator<String> hashes = provisioningWorker.generateDefaultPasswordHashes(valid).iterator();
+        List<String> pwHashes = new ArrayList<>(chunk.size());
+        for (PhysicianImportResult result : rejected) {
+            pwHashes.add(result == null ? hashes.next() : null);
+        }
+        try {
+            results.addAll(service.importPhysicians(chunk, pwHashes, firstRow));
+        }
+        catch (EJBException e) {
+            LOG.warn("importing physicians {} to {} failed: {}", firstRow, firstRow + chunk.size() - 1, e.toString());
+            results.addAll(service.rolledBackImport(chunk, firstRow, "chunk rolled back: " + e.getMessage()));
+        }
+    }
+
+    @GET
+    //A user with either the role ‘ADMIN_ROLE’ or ‘USER_ROLE’ can check whether a physician's credentials are ready.
+    @RolesAllowed({ADMIN_ROLE, USER_ROLE})
+    @Path(PHYSICIAN_CREDENTIALS_RESOURCE_PATH)
+    public Response getPhysicianCredentialsStatus(@PathParam(RESOURCE_PATH_ID_ELEMENT) int id) {
+        LOG.debug("try to retrieve credentials status of physician {}", id);
+        if (!sc.isCallerInRole(ADMIN_ROLE)) {
+            WrappingCallerPrincipal wCallerPrincipal = (WrappingCallerPrincipal) sc.getCallerPrincipal();
+            if (!((AuthenticatedUser) wCallerPrincipal.getWrapped()).ownsPhysician(id)) {
+                throw new StacklessClientErrorException("User trying to access resource it does not own (wrong userid)", Status.FORBIDDEN);
+            }
+        }
+        UserProvisioning provisioning = service.getUserProvisioning(id);
+        Response response = Response.status(provisioning == null ? Status.NOT_FOUND : Status.OK).entity(provisioning).build();
+        return response;
+    }
+
     @PUT
     //Only an ‘ADMIN_ROLE’ user can associate a Medicine and/or Patient to a Physician.
     @RolesAllowed({ADMIN_ROLE})
@@ -115,5 +353,18 @@ public class PhysicianResource {
         response = Response.ok(medicine).build();
         return response;
     }
+
+    @PUT
+    @RolesAllowed({ADMIN_ROLE})
+    @Path(PHYSICIANS_PATIENTS_MEDICINE_RESOURCE_PATH)
+    public Response updateMedicinesForPhysiciansPatients(List<MedicineAssignment> assignments) {
+        Response response = null;
+        if (assignments == null || assignments.stream().anyMatch(a -> a == null || a.getMedicine() == null)) {
+            throw new StacklessClientErrorException("Every assignment needs physician-id, patient-id and medicine", Status.BAD_REQUEST);
+        }
+        List<Medicine> medicines = service.setMedicinesForPhysicianPatients(assignments);
+        response = Response.ok(medicines).build();
+        return response;
+    }
     
 }
\ No newline at end of file
@@ -0,0 +1,86 @@
+/********************************************************************************************************
+ * File:  UnfetchedAssociationSerializerModifier.java
+ * Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Shariar (Shawn) Emami
+ *
+ */
+package acmemedical.rest.serializer;
+
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.PropertyName;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+
+import org.hibernate.Hibernate;
+
+import acmemedical.entity.PojoBase;
+import acmemedical.entity.PojoBaseCompositeKey;
+import acmemedical.rest.LazyLoadDetector;
+
+/**
+ * Keeps Jackson from lazily loading entity associations:  an association that was not fetched
+ * (uninitialized proxy or collection) is left out of the JSON and reported to {@link LazyLoadDetector},
+ * instead of triggering a query - or, outside a transaction, a LazyInitializationException.
+ */
+public class UnfetchedAssociationSerializerModifier extends BeanSerializerModifier {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public List<BeanPropertyWriter> changeProperties(SerializationConfig config, BeanDescription beanDesc,
+        List<BeanPropertyWriter> beanProperties) {
+        if (!isEntity(beanDesc.getBeanClass())) {
+            return beanProperties;
+        }
+        for (int i = 0; i < beanProperties.size(); i++) {
+            BeanPropertyWriter writer = beanProperties.get(i);
+            if (isAssociation(writer.getType())) {
+                beanProperties.set(i, new UnfetchedAssociationWriter(writer));
+            }
+        }
+        return beanProperties;
+    }
+
+    protected static boolean isEntity(Class<?> type) {
+        return PojoBase.class.isAssignableFrom(type) || PojoBaseCompositeKey.class.isAssignableFrom(type);
+    }
+
+    protected static boolean isAssociation(JavaType type) {
+        return type.isCollectionLikeType() || type.isMapLikeType() || isEntity(type.getRawClass());
+    }
+
+    protected static class UnfetchedAssociationWriter extends BeanPropertyWriter {
+        private static final long serialVersionUID = 1L;
+
+        protected UnfetchedAssociationWriter(BeanPropertyWriter base) {
+            super(base);
+        }
+
+        protected UnfetchedAssociationWriter(BeanPropertyWriter base, PropertyName name) {
+            super(base, name);
+        }
+
+        @Override
+        protected BeanPropertyWriter _new(PropertyName newName) {
+            return new UnfetchedAssociationWriter(this, newName);
+        }
+
+        @Override
+        public void serializeAsField(Object bean, JsonGenerator gen, SerializerProvider prov) throws Exception {
+            // Reading the field hands back the proxy/collection wrapper, only touching its contents would load it
+            Object value = get(bean);
+            if (value != null && !Hibernate.isInitialized(value)) {
+                LazyLoadDetector.unfetched(bean.getClass(), getName());
+                return;
+            }
+            super.serializeAsField(bean, gen, prov);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/********************************************************************************************************
+ * File:  AuthenticatedUser.java Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Mike Norman
+ *
+ */
+package acmemedical.security;
+
+import java.io.Serializable;
+import java.security.Principal;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import acmemedical.entity.SecurityRole;
+import acmemedical.entity.SecurityUser;
+
+/**
+ * Immutable snapshot of a {@link SecurityUser} taken at authentication time, wrapped by the
+ * <code>WrappingCallerPrincipal</code>.<br>
+ * Unlike the entity it is safe to share between threads (and to cache), and ownership checks are a plain
+ * int comparison instead of a lazy load of <code>SecurityUser.physician</code>.
+ */
+public final class AuthenticatedUser implements Principal, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** physicianId of a user that is not linked to a physician (e.g. admin) */
+    public static final int NO_PHYSICIAN = 0;
+
+    private final int userId;
+    private final String username;
+    private final Set<String> roles;
+    private final int physicianId;
+
+    public AuthenticatedUser(int userId, String username, Set<String> roles, int physicianId) {
+        this.userId = userId;
+        this.username = username;
+        this.roles = Set.copyOf(roles);
+        this.physicianId = physicianId;
+    }
+
+    /**
+     * @param user - user with its roles already fetched
+     */
+    public static AuthenticatedUser of(SecurityUser user) {
+        Set<String> roleNames = user.getRoles().stream().map(SecurityRole::getRoleName).collect(Collectors.toSet());
+        // getId() on an uninitialized Hibernate proxy answers from the foreign key, no query
+        int physicianId = user.getPhysician() == null ? NO_PHYSICIAN : user.getPhysician().getId();
+        return new AuthenticatedUser(user.getId(), user.getUsername(), roleNames, physicianId);
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Set<String> getRoles() {
+        return roles;
+    }
+
+    public int getPhysicianId() {
+        return physicianId;
+    }
+
+    public boolean ownsPhysician(int id) {
+        return physicianId != NO_PHYSICIAN && physicianId == id;
+    }
+
+    // Principal
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("AuthenticatedUser [userId = ").append(userId).append(", username = ").append(username)
+            .append(", roles = ").append(roles).append(", physicianId = ").append(physicianId).append("]");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,157 @@
+/********************************************************************************************************
+ * File:  BearerTokenService.java Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Mike Norman
+ *
+ */
+package acmemedical.security;
+
+import static acmemedical.utility.MyConstants.DEFAULT_TOKEN_TTL_SECONDS;
+import static acmemedical.utility.MyConstants.TOKEN_SIGNING_KEY_PROPNAME;
+import static acmemedical.utility.MyConstants.TOKEN_TTL_SECONDS_PROPNAME;
+import static jakarta.security.enterprise.identitystore.CredentialValidationResult.INVALID_RESULT;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.Set;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.security.enterprise.identitystore.CredentialValidationResult;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.glassfish.soteria.WrappingCallerPrincipal;
+
+/**
+ * Issues and verifies short-lived, HMAC-SHA256 signed bearer tokens.<br>
+ * Verifying a token is a single HMAC over a few dozen bytes - no database, no PBKDF2 - and needs no state
+ * shared between nodes other than the signing key.
+ * <p>
+ * Token format:  <code>base64url(payload) '.' base64url(hmac(payload))</code> where payload is
+ * <code>&lt;expiry epoch seconds&gt;:&lt;user id&gt;:&lt;physician id&gt;:&lt;comma separated roles&gt;:&lt;username&gt;</code>
+ * (username last so it may itself contain ':').  The caller is restored as the same {@link AuthenticatedUser}
+ * that Basic authentication produces.
+ */
+@ApplicationScoped
+public class BearerTokenService {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int MIN_KEY_SIZE = 32;
+    private static final char TOKEN_SEPARATOR = '.';
+    private static final String FIELD_SEPARATOR = ":";
+    private static final String ROLE_SEPARATOR = ",";
+
+    @Inject
+    @ConfigProperty(name = TOKEN_SIGNING_KEY_PROPNAME)
+    protected Optional<String> configuredSigningKey;
+
+    @Inject
+    @ConfigProperty(name = TOKEN_TTL_SECONDS_PROPNAME, defaultValue = DEFAULT_TOKEN_TTL_SECONDS)
+    protected long ttlSeconds;
+
+    protected SecretKeySpec signingKey;
+    protected ThreadLocal<Mac> hmacs;
+
+    @PostConstruct
+    protected void init() {
+        byte[] keyBytes;
+        if (configuredSigningKey.isPresent()) {
+            keyBytes = Base64.getDecoder().decode(configuredSigningKey.get());
+            if (keyBytes.length < MIN_KEY_SIZE) {
+                throw new IllegalStateException(TOKEN_SIGNING_KEY_PROPNAME + " must be at least " + MIN_KEY_SIZE + " bytes");
+            }
+        }
+        else {
+            LOG.warn("{} not configured, using a random key: tokens are only valid on this node until it restarts",
+                TOKEN_SIGNING_KEY_PROPNAME);
+            keyBytes = new byte[MIN_KEY_SIZE];
+            new SecureRandom().nextBytes(keyBytes);
+        }
+        signingKey = new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+        hmacs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+                mac.init(signingKey);
+                return mac;
+            }
+            catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public String issue(AuthenticatedUser user) {
+        long expiresAt = System.currentTimeMillis() / 1000 + ttlSeconds;
+        String payload = expiresAt + FIELD_SEPARATOR + user.getUserId() + FIELD_SEPARATOR + user.getPhysicianId()
+            + FIELD_SEPARATOR + String.join(ROLE_SEPARATOR, user.getRoles()) + FIELD_SEPARATOR + user.getUsername();
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(payloadBytes) + TOKEN_SEPARATOR + encoder.encodeToString(sign(payloadBytes));
+    }
+
+    /**
+     * @param token - token as sent in the <code>Authorization: Bearer</code> header
+     * @return VALID result carrying the caller and roles, or INVALID if the token is forged, malformed or expired
+     */
+    public CredentialValidationResult validate(String token) {
+        int dot = token.indexOf(TOKEN_SEPARATOR);
+        if (dot <= 0 || dot == token.length() - 1) {
+            return INVALID_RESULT;
+        }
+        byte[] payloadBytes;
+        byte[] signature;
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            payloadBytes = decoder.decode(token.substring(0, dot));
+            signature = decoder.decode(token.substring(dot + 1));
+        }
+        catch (IllegalArgumentException e) {
+            return INVALID_RESULT;
+        }
+        if (!MessageDigest.isEqual(sign(payloadBytes), signature)) {
+            return INVALID_RESULT;
+        }
+        String[] fields = new String(payloadBytes, StandardCharsets.UTF_8).split(FIELD_SEPARATOR, 5);
+        if (fields.length != 5) {
+            return INVALID_RESULT;
+        }
+        long expiresAt;
+        int userId;
+        int physicianId;
+        try {
+            expiresAt = Long.parseLong(fields[0]);
+            userId = Integer.parseInt(fields[1]);
+            physicianId = Integer.parseInt(fields[2]);
+        }
+        catch (NumberFormatException e) {
+            return INVALID_RESULT;
+        }
+        if (System.currentTimeMillis() / 1000 >= expiresAt) {
+            return INVALID_RESULT;
+        }
+        Set<String> roles = fields[3].isEmpty() ? Set.of() : Set.of(fields[3].split(ROLE_SEPARATOR));
+        AuthenticatedUser principal = new AuthenticatedUser(userId, fields[4], roles, physicianId);
+        return new CredentialValidationResult(new WrappingCallerPrincipal(principal), roles);
+    }
+
+    protected byte[] sign(byte[] payload) {
+        return hmacs.get().doFinal(payload);
+    }
+}
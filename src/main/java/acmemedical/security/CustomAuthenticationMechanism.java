@@ -9,6 +9,7 @@
  */
 package acmemedical.security;
 
+import static acmemedical.utility.MyConstants.BEARER_AUTH;
 import static jakarta.security.enterprise.identitystore.CredentialValidationResult.Status.VALID;
 import static jakarta.servlet.http.HttpServletRequest.BASIC_AUTH;
 
@@ -34,6 +35,9 @@ public class CustomAuthenticationMechanism implements HttpAuthenticationMechanis
     @Inject
     protected CustomIdentityStore identityStore;
 
+    @Inject
+    protected BearerTokenService tokenService;
+
     @Context
     protected ServletContext servletContext;
 
@@ -41,23 +45,21 @@ public class CustomAuthenticationMechanism implements HttpAuthenticationMechanis
     public AuthenticationStatus validateRequest(HttpServletRequest request, HttpServletResponse response, HttpMessageContext httpMessageContext) throws AuthenticationException {
 
         AuthenticationStatus result = httpMessageContext.doNothing();
-        //Parse BasicAuth header
         String name = null;
         String password = null;
         String authHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
-        if (authHeader != null) {
-            boolean startsWithBasic = authHeader.toLowerCase().startsWith(BASIC_AUTH.toLowerCase());
-            if (startsWithBasic) {
-                String b64Token = authHeader.substring(BASIC_AUTH.length() + 1, authHeader.length());
-                //                                              ^^^^^^^^^^^ account for space between BASIC and base64-string
-                byte[] token = Base64.getDecoder().decode(b64Token);
-                String tmp = new String(token);
-                String[] tokenFields = tmp.split(":");
-                if (tokenFields.length == 2) {
-                    name = tokenFields[0];
-                    password = tokenFields[1];
-                }
+        // Bearer token issued by CredentialResource:  signature check only, no DB lookup and no PBKDF2
+        if (authHeader != null && authHeader.regionMatches(true, 0, BEARER_AUTH + " ", 0, BEARER_AUTH.length() + 1)) {
+            CredentialValidationResult validationResult = tokenService.validate(authHeader.substring(BEARER_AUTH.length() + 1).trim());
+            if (validationResult.getStatus() == VALID) {
+                return httpMessageContext.notifyContainerAboutLogin(validationResult);
             }
+            return httpMessageContext.responseUnauthorized();
+        }
+        String[] basicCredentials = parseBasicAuth(authHeader);
+        if (basicCredentials != null) {
+            name = basicCredentials[0];
+            password = basicCredentials[1];
         }
         if (name != null && password != null) {
             CredentialValidationResult validationResult = identityStore.validate(new UsernamePasswordCredential(name, password));
@@ -73,4 +75,27 @@ public class CustomAuthenticationMechanism implements HttpAuthenticationMechanis
         }
         return result;
     }
+
+    /**
+     * Parse BasicAuth header
+     *
+     * @param authHeader - value of the Authorization header, may be null
+     * @return {name, password}, or null if the header does not carry Basic credentials
+     */
+    protected static String[] parseBasicAuth(String authHeader) {
+        if (authHeader != null) {
+            boolean startsWithBasic = authHeader.toLowerCase().startsWith(BASIC_AUTH.toLowerCase());
+            if (startsWithBasic) {
+                String b64Token = authHeader.substring(BASIC_AUTH.length() + 1, authHeader.length());
+                //                                              ^^^^^^^^^^^ account for space between BASIC and base64-string
+                byte[] token = Base64.getDecoder().decode(b64Token);
+                String tmp = new String(token);
+                String[] tokenFields = tmp.split(":");
+                if (tokenFields.length == 2) {
+                    return tokenFields;
+                }
+            }
+        }
+        return null;
+    }
 }
\ No newline at end of file
@@ -38,6 +38,9 @@ public class CustomIdentityStore implements IdentityStore {
     @Inject
     protected Pbkdf2PasswordHash pbAndjPasswordHash;
 
+    @Inject
+    protected VerifiedCredentialCache credentialCache;
+
     @Override
     public CredentialValidationResult validate(Credential credential) {
 
@@ -46,7 +49,13 @@ public class CustomIdentityStore implements IdentityStore {
         if (credential instanceof UsernamePasswordCredential) {
             String callerName = ((UsernamePasswordCredential)credential).getCaller();
             String credentialPassword = ((UsernamePasswordCredential)credential).getPasswordAsString();
-            SecurityUser user = jpaHelper.findUserByName(callerName);
+            CredentialValidationResult cachedResult = credentialCache.get(callerName, credentialPassword);
+            if (cachedResult != null) {
+                return cachedResult;
+            }
+            // read before the lookup:  an invalidation from here on keeps the result out of the cache
+            long generation = credentialCache.generation(callerName);
+            SecurityUser user = jpaHelper.findUserWithRolesByName(callerName);
             if (user != null) {
                 String pwHash = user.getPwHash();
                 /*
@@ -68,8 +77,9 @@ public class CustomIdentityStore implements IdentityStore {
                 try {
                     boolean verified = pbAndjPasswordHash.verify(credentialPassword.toCharArray(), pwHash);
                     if (verified) {
-                        Set<String> rolesForUser = jpaHelper.findRoleNamesForUser(callerName);
-                        result = new CredentialValidationResult(new WrappingCallerPrincipal(user), rolesForUser);
+                        AuthenticatedUser principal = AuthenticatedUser.of(user);
+                        result = new CredentialValidationResult(new WrappingCallerPrincipal(principal), principal.getRoles());
+                        credentialCache.put(callerName, credentialPassword, result, generation);
                     }
                 }
                 catch (Exception e) {
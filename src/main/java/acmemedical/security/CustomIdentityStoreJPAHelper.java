@@ -12,24 +12,34 @@ import static acmemedical.utility.MyConstants.PU_NAME;
 
 import static java.util.Collections.emptySet;
 
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import acmemedical.ejb.UniqueNameFilters;
 import acmemedical.entity.SecurityRole;
 import acmemedical.entity.SecurityUser;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
 import jakarta.ejb.Singleton;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 import jakarta.transaction.Transactional;
 
 @SuppressWarnings("unused")
 
+// Every authenticated request passes through here, don't let the container's default WRITE lock serialize them
 @Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
 public class CustomIdentityStoreJPAHelper {
 
     private static final Logger LOG = LogManager.getLogger();
@@ -37,6 +47,15 @@ public class CustomIdentityStoreJPAHelper {
     @PersistenceContext(name = PU_NAME)
     protected EntityManager em;
 
+    @Inject
+    protected VerifiedCredentialCache credentialCache;
+
+    @EJB
+    protected UniqueNameFilters nameFilters;
+
+    @Resource
+    protected TransactionSynchronizationRegistry tsr;
+
     public SecurityUser findUserByName(String username) {
         LOG.debug("find a SecurityUser by name = {}", username);
         SecurityUser user = null;
@@ -53,6 +72,22 @@ public class CustomIdentityStoreJPAHelper {
         return user;
     }
 
+    /**
+     * Single query for everything authentication needs:  the user (with its password hash), its role names
+     * and its physician, fetched with it
+     * 
+     * @param username - name of user to find
+     * @return user with roles and physician fetched, or null if there is no such user
+     */
+    public SecurityUser findUserWithRolesByName(String username) {
+        LOG.debug("find a SecurityUser with roles by name = {}", username);
+        TypedQuery<SecurityUser> findUser = em.createNamedQuery(SecurityUser.USER_WITH_ROLES_BY_NAME_QUERY_NAME, SecurityUser.class);
+        findUser.setParameter(PARAM1, username);
+        // an unknown username is an everyday 401, not worth a NoResultException (and its stack trace) each time
+        List<SecurityUser> users = findUser.getResultList();
+        return users.isEmpty() ? null : users.get(0);
+    }
+
     public Set<String> findRoleNamesForUser(String username) {
         LOG.debug("find Roles For Username={}", username);
         Set<String> roleNames = emptySet();
@@ -67,11 +102,15 @@ public class CustomIdentityStoreJPAHelper {
     public void saveSecurityUser(SecurityUser user) {
         LOG.debug("adding new user={}", user);
         em.persist(user);
+        nameFilters.getUsernames().addBeforeCommit(tsr, user.getUsername());
+        // roles are a join table, changing them alone does not fire SecurityListener's @PostUpdate
+        credentialCache.invalidateAfterCommit(user.getUsername());
     }
 
     @Transactional
     public void saveSecurityRole(SecurityRole role) {
         LOG.debug("adding new role={}", role);
         em.persist(role);
+        credentialCache.invalidateAllAfterCommit();
     }
 }
\ No newline at end of file
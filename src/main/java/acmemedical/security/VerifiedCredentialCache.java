@@ -0,0 +1,281 @@
+/********************************************************************************************************
+ * File:  VerifiedCredentialCache.java Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Mike Norman
+ *
+ */
+package acmemedical.security;
+
+import static acmemedical.utility.MyConstants.CREDENTIAL_CACHE_MAX_ENTRIES_PROPNAME;
+import static acmemedical.utility.MyConstants.CREDENTIAL_CACHE_TTL_SECONDS_PROPNAME;
+import static acmemedical.utility.MyConstants.DEFAULT_CREDENTIAL_CACHE_MAX_ENTRIES;
+import static acmemedical.utility.MyConstants.DEFAULT_CREDENTIAL_CACHE_TTL_SECONDS;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.security.enterprise.identitystore.CredentialValidationResult;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Bounded, TTL-evicting cache of successfully verified username/password pairs.<br>
+ * A hit skips the database lookup and the (deliberately slow) PBKDF2 verify.
+ * <p>
+ * Passwords are never stored: the key is an HMAC-SHA256 of username and password under a random key
+ * that only lives in this JVM, so a heap dump does not yield anything that can be brute-forced offline.
+ * <p>
+ * Only VALID results are cached - a wrong password always goes the slow way.
+ * <p>
+ * A result verified against a password hash that has changed since must never be cached:  a caller reads
+ * {@link #generation(String)} before looking the user up, and {@link #put} drops the result if the user was
+ * invalidated in between.  Invalidation happens after the change commits (see {@link #invalidateAfterCommit}),
+ * so a lookup that starts after it reads the new hash.
+ */
+@ApplicationScoped
+public class VerifiedCredentialCache {
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int HMAC_KEY_SIZE = 32;
+    // generations are kept per stripe of usernames:  bounded memory, a shared stripe only costs a skipped put
+    private static final int GENERATION_STRIPES = 1024;
+
+    @Inject
+    @ConfigProperty(name = CREDENTIAL_CACHE_TTL_SECONDS_PROPNAME, defaultValue = DEFAULT_CREDENTIAL_CACHE_TTL_SECONDS)
+    protected long ttlSeconds;
+
+    @Inject
+    @ConfigProperty(name = CREDENTIAL_CACHE_MAX_ENTRIES_PROPNAME, defaultValue = DEFAULT_CREDENTIAL_CACHE_MAX_ENTRIES)
+    protected int maxEntries;
+
+    protected record CachedResult(String username, CredentialValidationResult result, long expiresAtNanos) {
+    }
+
+    protected final Map<String, CachedResult> entries = new ConcurrentHashMap<>();
+    // username -> keys of entries for that user, so a user can be invalidated without knowing the password
+    protected final Map<String, Set<String>> keysByUsername = new ConcurrentHashMap<>();
+
+    protected final LongAdder hits = new LongAdder();
+    protected final LongAdder misses = new LongAdder();
+    protected final LongAdder evictions = new LongAdder();
+    protected final LongAdder invalidations = new LongAdder();
+    protected final LongAdder stalePuts = new LongAdder();
+
+    // bumped before an invalidation removes entries, see generation(String)
+    protected final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    protected final AtomicLong allGeneration = new AtomicLong();
+
+    @Resource
+    protected TransactionSynchronizationRegistry tsr;
+
+    protected SecretKeySpec hmacKey;
+    protected ThreadLocal<Mac> hmacs;
+
+    @PostConstruct
+    protected void init() {
+        byte[] keyBytes = new byte[HMAC_KEY_SIZE];
+        new SecureRandom().nextBytes(keyBytes);
+        hmacKey = new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+        hmacs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+                mac.init(hmacKey);
+                return mac;
+            }
+            catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        LOG.debug("verified credential cache: ttl = {}s, max entries = {}", ttlSeconds, maxEntries);
+    }
+
+    /**
+     * @return cached result for this username/password, or <code>null</code> if not (or no longer) cached
+     */
+    public CredentialValidationResult get(String username, String password) {
+        String key = keyFor(username, password);
+        CachedResult cached = entries.get(key);
+        if (cached != null && cached.expiresAtNanos() - System.nanoTime() > 0) {
+            hits.increment();
+            return cached.result();
+        }
+        if (cached != null) {
+            remove(key, cached);
+            evictions.increment();
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * @param username - user about to be looked up
+     * @return stamp to hand to {@link #put} along with the result of that lookup
+     */
+    public long generation(String username) {
+        // both only ever grow, so the sum changes whenever either does
+        return allGeneration.get() + generations.get(generationStripe(username));
+    }
+
+    /**
+     * @param username - user the result is for
+     * @param password - password that was verified
+     * @param result - result of the verification
+     * @param generation - {@link #generation(String)} of the user, read before the user was looked up
+     */
+    public void put(String username, String password, CredentialValidationResult result, long generation) {
+        if (result.getStatus() != CredentialValidationResult.Status.VALID) {
+            return;
+        }
+        if (generation(username) != generation) {
+            stalePuts.increment();
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            makeRoom();
+        }
+        String key = keyFor(username, password);
+        long expiresAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlSeconds);
+        CachedResult cached = new CachedResult(username, result, expiresAt);
+        keysByUsername.computeIfAbsent(username, u -> ConcurrentHashMap.newKeySet()).add(key);
+        entries.put(key, cached);
+        // invalidated while this was being added:  either it sees the entry and removes it, or this does
+        if (generation(username) != generation) {
+            remove(key, cached);
+            stalePuts.increment();
+        }
+    }
+
+    /**
+     * Drop every cached result for a user once the current transaction commits - call whenever the user's
+     * password hash or roles change.  Before the commit, a concurrent lookup would still read (and could
+     * cache a result for) the old values.
+     */
+    public void invalidateAfterCommit(String username) {
+        afterCommit(() -> invalidate(username));
+    }
+
+    public void invalidateAllAfterCommit() {
+        afterCommit(this::invalidateAll);
+    }
+
+    /**
+     * Drop every cached result for a user right away
+     */
+    public void invalidate(String username) {
+        generations.incrementAndGet(generationStripe(username));
+        Set<String> keys = keysByUsername.remove(username);
+        if (keys != null) {
+            keys.forEach(entries::remove);
+            invalidations.add(keys.size());
+        }
+    }
+
+    public void invalidateAll() {
+        allGeneration.incrementAndGet();
+        invalidations.add(entries.size());
+        entries.clear();
+        keysByUsername.clear();
+    }
+
+    public Map<String, Object> getStatistics() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("max-entries", maxEntries);
+        stats.put("ttl-seconds", ttlSeconds);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hit-ratio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("evictions", evictions.sum());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("stale-puts", stalePuts.sum());
+        return stats;
+    }
+
+    // First drop whatever has expired; if the cache is still full, drop entries until there is room again
+    protected void makeRoom() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<String, CachedResult>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, CachedResult> entry = it.next();
+            if (entry.getValue().expiresAtNanos() - now <= 0) {
+                remove(entry.getKey(), entry.getValue());
+                evictions.increment();
+            }
+        }
+        it = entries.entrySet().iterator();
+        while (entries.size() >= maxEntries && it.hasNext()) {
+            Map.Entry<String, CachedResult> entry = it.next();
+            remove(entry.getKey(), entry.getValue());
+            evictions.increment();
+        }
+    }
+
+    protected void afterCommit(Runnable invalidation) {
+        if (tsr == null || tsr.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            invalidation.run();
+            return;
+        }
+        tsr.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                // rolled back:  nothing changed
+                if (status == Status.STATUS_COMMITTED) {
+                    invalidation.run();
+                }
+            }
+        });
+    }
+
+    protected static int generationStripe(String username) {
+        return Math.floorMod(username.hashCode(), GENERATION_STRIPES);
+    }
+
+    protected void remove(String key, CachedResult cached) {
+        if (entries.remove(key, cached)) {
+            Set<String> keys = keysByUsername.get(cached.username());
+            if (keys != null) {
+                keys.remove(key);
+            }
+        }
+    }
+
+    protected String keyFor(String username, String password) {
+        Mac mac = hmacs.get();
+        mac.update(username.getBytes(StandardCharsets.UTF_8));
+        // separator can't appear in a username, so ("ab", "c") and ("a", "bc") produce different keys
+        mac.update((byte) 0);
+        return Base64.getEncoder().encodeToString(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,61 @@
+/********************************************************************************************************
+ * File:  H2ScriptCommandExtractor.java
+ * Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Shariar (Shawn) Emami
+ *
+ */
+package acmemedical.utility;
+
+import java.io.Reader;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.hibernate.tool.hbm2ddl.MultipleLinesSqlCommandExtractor;
+
+/**
+ * Reads the MySQL scripts in <code>META-INF/sql</code> for H2 in MySQL mode, which accepts them as they are
+ * except for a few MySQL-only clauses and the scope of index names.  Those are rewritten here, so the
+ * scripts stay the single source of truth for both databases.
+ * <p>
+ * Only the <code>acmemedical-embedded-PU</code> persistence unit (<code>src/embedded</code>) uses it; it needs
+ * nothing but Hibernate, so it lives with the main sources where the unit tests can reach it.
+ */
+public class H2ScriptCommandExtractor extends MultipleLinesSqlCommandExtractor {
+    private static final long serialVersionUID = 1L;
+
+    // CREATE SCHEMA ... DEFAULT CHARACTER SET utf8mb4 - H2 is always Unicode
+    private static final Pattern CHARACTER_SET = Pattern.compile("\\s+DEFAULT\\s+CHARACTER\\s+SET\\s+\\w+", Pattern.CASE_INSENSITIVE);
+    // USE `schema`
+    private static final Pattern USE = Pattern.compile("^\\s*USE\\s+", Pattern.CASE_INSENSITIVE);
+    // INDEX `name` (`column` ASC) VISIBLE - index visibility is MySQL 8 only
+    private static final Pattern VISIBILITY = Pattern.compile("\\)\\s+(?:IN)?VISIBLE\\b", Pattern.CASE_INSENSITIVE);
+    // BIT(1) - H2's BIT is BOOLEAN and takes no length
+    private static final Pattern BIT_1 = Pattern.compile("\\bBIT\\s*\\(\\s*1\\s*\\)", Pattern.CASE_INSENSITIVE);
+    // Index names are per table in MySQL but per schema in H2 (both medical_school and security_role have a name_UNIQUE)
+    private static final Pattern CREATE_TABLE = Pattern.compile("^\\s*CREATE\\s+TABLE\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?(?:`?\\w+`?\\.)?`?(\\w+)`?",
+        Pattern.CASE_INSENSITIVE);
+    private static final Pattern INDEX_NAME = Pattern.compile("\\b((?:UNIQUE\\s+)?(?:INDEX|KEY))\\s+`?(\\w+)`?\\s*\\(", Pattern.CASE_INSENSITIVE);
+
+    @Override
+    public String[] extractCommands(Reader reader) {
+        String[] commands = super.extractCommands(reader);
+        for (int i = 0; i < commands.length; i++) {
+            commands[i] = toH2(commands[i]);
+        }
+        return commands;
+    }
+
+    protected static String toH2(String command) {
+        String h2 = CHARACTER_SET.matcher(command).replaceAll("");
+        h2 = USE.matcher(h2).replaceFirst("SET SCHEMA ");
+        h2 = VISIBILITY.matcher(h2).replaceAll(")");
+        h2 = BIT_1.matcher(h2).replaceAll("BOOLEAN");
+        Matcher table = CREATE_TABLE.matcher(h2);
+        if (table.find()) {
+            h2 = INDEX_NAME.matcher(h2).replaceAll("$1 `" + table.group(1) + "_$2` (");
+        }
+        return h2;
+    }
+}
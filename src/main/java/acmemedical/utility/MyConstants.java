@@ -41,16 +41,54 @@ public interface MyConstants {
     public static final String PRESCRIPTION_RESOURCE_NAME = "prescription";
     public static final String MEDICAL_SCHOOL_RESOURCE_NAME =  "medicalschool";
     public static final String MEDICAL_TRAINING_RESOURCE_NAME = "medicaltraining";
+    public static final String METRICS_RESOURCE_NAME = "metrics";
+    public static final String METRICS_WRITE_LOCKS_PATH = "/writelocks";
+    public static final String METRICS_CREDENTIAL_CACHE_PATH = "/credentialcache";
+    public static final String METRICS_SHARED_CACHE_PATH = "/sharedcache";
+    public static final String METRICS_NAME_FILTERS_PATH = "/namefilters";
+    public static final String METRICS_BULK_DELETES_PATH = "/bulkdeletes";
+    public static final String METRICS_LAZY_LOADS_PATH = "/lazyloads";
+    public static final String METRICS_ORM_PATH = "/orm";
     public static final String MEDICINE_SUBRESOURCE_NAME =  "medicine";
     public static final String PATIENT_MEDICINE_RESOURCE_PATH =
         RESOURCE_PATH_ID_PATH + SLASH + MEDICINE_SUBRESOURCE_NAME;
     public static final String PHYSICIAN_PATIENT_MEDICINE_RESOURCE_PATH = "/{physicianId}/patient/{patientId}/medicine";
+    public static final String PHYSICIAN_CREDENTIALS_RESOURCE_PATH = RESOURCE_PATH_ID_PATH + SLASH + CREDENTIAL_RESOURCE_NAME;
+    public static final String PHYSICIAN_IMPORT_RESOURCE_PATH = "/import";
+    public static final String PHYSICIANS_PATIENTS_MEDICINE_RESOURCE_PATH = "/patient/medicine";
     public static final String SCHOOL_ID_RESOURCE_NAME = "school_id";
     public static final String RESOURCE_PATH_SCHOOL_ID_PATH = "/{" + SCHOOL_ID_RESOURCE_NAME + "}";
     public static final String PHYSICIAN_ID_RESOURCE_NAME =  "physician_id";
     public static final String RESOURCE_PATH_PHYSICIAN_ID_PATH =  "/{" + PHYSICIAN_ID_RESOURCE_NAME + "}";
     public static final String TRAINING_ID_RESOURCE_NAME = "training_id";
     public static final String RESOURCE_PATH_TRAINING_ID_PATH =  "/{" + TRAINING_ID_RESOURCE_NAME + "}";
+
+    //REST constants for keyset (cursor) pagination of collection reads
+    public static final String PAGE_AFTER_QUERY_PARAM = "after";
+    public static final String PAGE_LIMIT_QUERY_PARAM = "limit";
+    public static final String PAGE_ESTIMATE_QUERY_PARAM = "estimate";
+    public static final String DEFAULT_PAGE_AFTER = "0";
+    public static final String DEFAULT_PAGE_LIMIT = "100";
+    public static final int MAX_PAGE_LIMIT = 1000;
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String ESTIMATED_TOTAL_HEADER = "X-Estimated-Total";
+    public static final String SQL_STATEMENTS_HEADER = "X-SQL-Statements";
+    public static final String SQL_MAX_REPEATS_HEADER = "X-SQL-Max-Repeats";
+    public static final String DEBUG_LOG_HEADER = "X-Debug-Log";
+
+    //REST constants for sparse fieldsets:  ?fields=id,firstName,lastName
+    public static final String FIELDS_QUERY_PARAM = "fields";
+
+    //REST constants for client-selected fetch plans:  ?expand=trainings,certificates
+    public static final String EXPAND_QUERY_PARAM = "expand";
+    public static final String EXPAND_CERTIFICATES = "certificates";
+    public static final String EXPAND_PRESCRIPTIONS = "prescriptions";
+    public static final String EXPAND_TRAININGS = "trainings";
+
+    //REST constants for streaming collection reads, one JSON document per line
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+    // what the streaming GETs produce:  a lower quality than the JSON GETs, so Accept: */* gets JSON
+    public static final String APPLICATION_NDJSON_LOW_QS = APPLICATION_NDJSON + ";qs=0.5";
     
     //REST constants for peertutor 
     public static final String MEDICINE_RESOURCE_NAME =  "medicine";
@@ -74,6 +112,38 @@ public interface MyConstants {
     public static final String DEFAULT_USER = "cst8277";
     public static final String DEFAULT_USER_PASSWORD = "8277";
     public static final String DEFAULT_USER_PREFIX = "user";
+    public static final String STREAM_FETCH_SIZE_PROPNAME = "stream-fetch-size";
+    public static final String DEFAULT_STREAM_FETCH_SIZE = "500";
+    public static final String CREDENTIAL_CACHE_TTL_SECONDS_PROPNAME = "credential-cache-ttl-seconds";
+    public static final String DEFAULT_CREDENTIAL_CACHE_TTL_SECONDS = "300";
+    public static final String CREDENTIAL_CACHE_MAX_ENTRIES_PROPNAME = "credential-cache-max-entries";
+    public static final String DEFAULT_CREDENTIAL_CACHE_MAX_ENTRIES = "10000";
+    public static final String TOKEN_SIGNING_KEY_PROPNAME = "token-signing-key";
+    public static final String TOKEN_TTL_SECONDS_PROPNAME = "token-ttl-seconds";
+    public static final String DEFAULT_TOKEN_TTL_SECONDS = "900";
+    public static final String BEARER_AUTH = "Bearer";
+    public static final String PROVISIONING_WORKERS_PROPNAME = "provisioning-workers";
+    public static final String DEFAULT_PROVISIONING_WORKERS = "0";
+    public static final String IMPORT_CHUNK_SIZE_PROPNAME = "import-chunk-size";
+    public static final String DEFAULT_IMPORT_CHUNK_SIZE = "500";
+    public static final String IMPORT_HASH_THREADS_PROPNAME = "import-hash-threads";
+    public static final String DEFAULT_IMPORT_HASH_THREADS = "0";
+    public static final String NAME_FILTER_EXPECTED_ENTRIES_PROPNAME = "name-filter-expected-entries";
+    public static final String DEFAULT_NAME_FILTER_EXPECTED_ENTRIES = "100000";
+    public static final String NAME_FILTER_FALSE_POSITIVE_RATE_PROPNAME = "name-filter-false-positive-rate";
+    public static final String DEFAULT_NAME_FILTER_FALSE_POSITIVE_RATE = "0.01";
+    public static final String LAZY_LOAD_DETECTION_PROPNAME = "lazy-load-detection";
+    public static final String DEFAULT_LAZY_LOAD_DETECTION = "count";
+    public static final String SQL_STATEMENT_HEADERS_PROPNAME = "sql-statement-headers";
+    public static final String DEFAULT_SQL_STATEMENT_HEADERS = "true";
+    public static final String SQL_STATEMENT_WARN_THRESHOLD_PROPNAME = "sql-statement-warn-threshold";
+    public static final String DEFAULT_SQL_STATEMENT_WARN_THRESHOLD = "50";
+    public static final String SQL_REPEAT_WARN_THRESHOLD_PROPNAME = "sql-repeat-warn-threshold";
+    public static final String DEFAULT_SQL_REPEAT_WARN_THRESHOLD = "10";
+    public static final String LOG_SAMPLE_RATE_PROPNAME = "log-sample-rate";
+    public static final String DEFAULT_LOG_SAMPLE_RATE = "0";
+    public static final String JACKSON_OPTIMIZED_PROPNAME = "jackson-optimized";
+    public static final String DEFAULT_JACKSON_OPTIMIZED = "false";
 
     // The nickname of this hash algorithm is 'PBandJ' (Peanut-Butter-And-Jam, like the sandwich!)
     // I would like to use the constants from org.glassfish.soteria.identitystores.hash.Pbkdf2PasswordHashImpl
@@ -0,0 +1,72 @@
+/********************************************************************************************************
+ * File:  SqlStatementInspector.java
+ * Course Materials CST 8277
+ *
+ * @author Teddy Yap
+ * @author Shariar (Shawn) Emami
+ *
+ */
+package acmemedical.utility;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Sees every SQL statement Hibernate prepares (<code>hibernate.session_factory.statement_inspector</code>)
+ * and, while {@link #begin()} is in effect on the current thread, tallies them by shape - the statement
+ * with comments, literals and IN-list lengths taken out.  The same shape showing up again and again within
+ * one request is the signature of an N+1 loop.
+ * <p>
+ * Only counts, never changes a statement.  A JDBC batch is prepared once and so counts once.
+ */
+public class SqlStatementInspector implements StatementInspector {
+    private static final long serialVersionUID = 1L;
+
+    private static final Pattern COMMENT = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    // shape -> count, for the request being handled by this thread
+    private static final ThreadLocal<Map<String, Integer>> SHAPES = new ThreadLocal<>();
+
+    /**
+     * Start tallying the statements of the current thread
+     */
+    public static void begin() {
+        SHAPES.set(new HashMap<>());
+    }
+
+    /**
+     * Stop tallying the statements of the current thread
+     *
+     * @return statement shape -> number of times it was prepared since {@link #begin()}
+     */
+    public static Map<String, Integer> end() {
+        Map<String, Integer> shapes = SHAPES.get();
+        SHAPES.remove();
+        return shapes == null ? Collections.emptyMap() : shapes;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        Map<String, Integer> shapes = SHAPES.get();
+        if (shapes != null) {
+            shapes.merge(shape(sql), 1, Integer::sum);
+        }
+        return sql;
+    }
+
+    protected static String shape(String sql) {
+        String shape = COMMENT.matcher(sql).replaceAll("");
+        shape = STRING_LITERAL.matcher(shape).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = IN_LIST.matcher(shape).replaceAll("(?)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").strip();
+    }
+}
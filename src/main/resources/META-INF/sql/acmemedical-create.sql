@@ -200,3 +200,23 @@ CREATE TABLE IF NOT EXISTS `user_has_role` (
     ON DELETE NO ACTION
     ON UPDATE NO ACTION
 );
+
+-- -----------------------------------------------------
+-- Table `user_provisioning`
+-- Durable queue of physicians waiting for their SecurityUser, drained by UserProvisioningWorker
+-- -----------------------------------------------------
+CREATE TABLE IF NOT EXISTS `user_provisioning` (
+  `physician_id` INT NOT NULL,
+  `status` VARCHAR(20) NOT NULL,
+  `attempts` INT NOT NULL DEFAULT 0,
+  `last_error` VARCHAR(255) NULL,
+  `created` DATETIME NULL,
+  `updated` DATETIME NULL,
+  PRIMARY KEY (`physician_id`),
+  INDEX `user_provisioning_status_idx` (`status` ASC) VISIBLE,
+  CONSTRAINT `fk_user_provisioning_physician1`
+    FOREIGN KEY (`physician_id`)
+    REFERENCES `physician` (`id`)
+    ON DELETE CASCADE
+    ON UPDATE NO ACTION
+);
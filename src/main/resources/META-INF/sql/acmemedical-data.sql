@@ -44,3 +44,7 @@ INSERT INTO `security_user` (`user_id`, `password_hash`, `username`, `physician_
 --  data for table `user_has_role`
 INSERT INTO `user_has_role` (`user_id`, `role_id`)
   VALUES (1,1), (2,2);
+
+-- data for table `user_provisioning`
+INSERT INTO `user_provisioning` (`physician_id`, `status`, `attempts`, `created`, `updated`)
+  VALUES (1,'READY',0,now(),now());
@@ -0,0 +1,173 @@
+/********************************************************************************************************
+ * File:  TestBloomFilter.java
+ * Course Materials CST 8277
+ * Teddy Yap
+ * (Original Author) Mike Norman
+ *
+ */
+package acmemedical.ejb;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.number.OrderingComparison.lessThan;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class TestBloomFilter {
+
+    static final int EXPECTED_ENTRIES = 1000;
+    static final double FALSE_POSITIVE_RATE = 0.01;
+
+    /**
+     * One active transaction, completed by {@link #complete(int)}
+     */
+    static class Transaction implements TransactionSynchronizationRegistry {
+        final Map<Object, Object> resources = new HashMap<>();
+        final List<Synchronization> synchronizations = new ArrayList<>();
+        int status = Status.STATUS_ACTIVE;
+
+        void complete(int completion) {
+            synchronizations.forEach(Synchronization::beforeCompletion);
+            status = completion;
+            synchronizations.forEach(s -> s.afterCompletion(completion));
+        }
+
+        @Override
+        public Object getTransactionKey() {
+            return this;
+        }
+
+        @Override
+        public void putResource(Object key, Object value) {
+            resources.put(key, value);
+        }
+
+        @Override
+        public Object getResource(Object key) {
+            return resources.get(key);
+        }
+
+        @Override
+        public void registerInterposedSynchronization(Synchronization sync) {
+            synchronizations.add(sync);
+        }
+
+        @Override
+        public int getTransactionStatus() {
+            return status;
+        }
+
+        @Override
+        public void setRollbackOnly() {
+            status = Status.STATUS_MARKED_ROLLBACK;
+        }
+
+        @Override
+        public boolean getRollbackOnly() {
+            return status == Status.STATUS_MARKED_ROLLBACK;
+        }
+    }
+
+    BloomFilter filter;
+
+    @BeforeEach
+    public void setUp() {
+        filter = new BloomFilter(EXPECTED_ENTRIES, FALSE_POSITIVE_RATE);
+    }
+
+    @Test
+    public void test01_added_names_are_never_absent() {
+        for (int i = 0; i < EXPECTED_ENTRIES; i++) {
+            filter.add("physician." + i);
+        }
+        for (int i = 0; i < EXPECTED_ENTRIES; i++) {
+            assertThat(filter.mightContain("physician." + i), is(true));
+        }
+    }
+
+    @Test
+    public void test02_false_positive_rate_is_near_the_configured_one() {
+        for (int i = 0; i < EXPECTED_ENTRIES; i++) {
+            filter.add("physician." + i);
+        }
+        int maybes = 0;
+        for (int i = 0; i < 10 * EXPECTED_ENTRIES; i++) {
+            if (filter.mightContain("patient." + i)) {
+                maybes++;
+            }
+        }
+        assertThat(maybes, is(lessThan((int) (3 * FALSE_POSITIVE_RATE * 10 * EXPECTED_ENTRIES))));
+    }
+
+    @Test
+    public void test03_case_and_accents_are_ignored() {
+        filter.add("Zoë Smith");
+        assertThat(filter.mightContain("zoe smith"), is(true));
+        assertThat(filter.mightContain(" ZOË SMITH "), is(true));
+    }
+
+    @Test
+    public void test04_null_is_always_maybe() {
+        filter.add(null);
+        assertThat(filter.mightContain(null), is(true));
+    }
+
+    @Test
+    public void test05_rebuild_replaces_the_contents() {
+        filter.add("deleted");
+        filter.rebuild(() -> Stream.of("kept", "from another node"));
+        assertThat(filter.mightContain("deleted"), is(false));
+        assertThat(filter.mightContain("kept"), is(true));
+        assertThat(filter.mightContain("from another node"), is(true));
+        assertThat(filter.getStatistics().get("entries"), is(2L));
+    }
+
+    @Test
+    public void test06_rebuild_keeps_names_of_uncommitted_transactions() {
+        Transaction tx = new Transaction();
+        filter.addBeforeCommit(tx, "inserting");
+        // the snapshot cannot see the insert yet
+        filter.rebuild(Stream::empty);
+        assertThat(filter.mightContain("inserting"), is(true));
+
+        tx.complete(Status.STATUS_COMMITTED);
+        // committed now, so it is the snapshot's to find
+        filter.rebuild(() -> Stream.of("inserting"));
+        assertThat(filter.mightContain("inserting"), is(true));
+    }
+
+    @Test
+    public void test07_completed_transactions_are_not_carried_over() {
+        Transaction tx = new Transaction();
+        filter.addBeforeCommit(tx, "rolled back");
+        assertThat(filter.mightContain("rolled back"), is(true));
+        tx.complete(Status.STATUS_ROLLEDBACK);
+        filter.rebuild(Stream::empty);
+        assertThat(filter.mightContain("rolled back"), is(false));
+    }
+
+    @Test
+    public void test08_additions_during_a_rebuild_are_not_lost() {
+        filter.rebuild(() -> {
+            // another thread adds while the snapshot is read
+            filter.add("added meanwhile");
+            return Stream.of("in snapshot");
+        });
+        assertThat(filter.mightContain("added meanwhile"), is(true));
+        assertThat(filter.mightContain("in snapshot"), is(true));
+    }
+}
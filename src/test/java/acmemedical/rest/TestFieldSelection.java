@@ -0,0 +1,68 @@
+/********************************************************************************************************
+ * File:  TestFieldSelection.java
+ * Course Materials CST 8277
+ * Teddy Yap
+ * (Original Author) Mike Norman
+ *
+ */
+package acmemedical.rest;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import jakarta.ws.rs.ClientErrorException;
+
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class TestFieldSelection {
+
+    static final List<String> SELECTABLE = List.of("id", "firstName", "lastName");
+
+    @Test
+    public void test01_nothing_requested() {
+        assertThat(FieldSelection.parse("fields", null, SELECTABLE), is(nullValue()));
+        assertThat(FieldSelection.parse("fields", "", SELECTABLE), is(nullValue()));
+        assertThat(FieldSelection.parse("fields", "  ", SELECTABLE), is(nullValue()));
+    }
+
+    @Test
+    public void test02_only_separators_is_nothing_requested() {
+        assertThat(FieldSelection.parse("fields", ",", SELECTABLE), is(nullValue()));
+        assertThat(FieldSelection.parse("fields", " , ,", SELECTABLE), is(nullValue()));
+    }
+
+    @Test
+    public void test03_request_order_without_duplicates() {
+        assertThat(FieldSelection.parse("fields", "lastName, id,lastName,", SELECTABLE), contains("lastName", "id"));
+    }
+
+    @Test
+    public void test04_unknown_name_is_bad_request() {
+        ClientErrorException e = assertThrows(ClientErrorException.class,
+            () -> FieldSelection.parse("fields", "id,salary", SELECTABLE));
+        assertThat(e.getResponse().getStatus(), is(400));
+    }
+
+    @Test
+    public void test05_default_representation_has_no_tag_suffix() {
+        assertThat(FieldSelection.tagSuffix(null, null), is(""));
+    }
+
+    @Test
+    public void test06_tag_suffix_keeps_field_order_and_sorts_expansions() {
+        assertThat(FieldSelection.tagSuffix(List.of("lastName", "id"), null), is("+lastName+id"));
+        assertThat(FieldSelection.tagSuffix(null, List.of("prescriptions", "certificates")),
+            is("+expand:certificates:prescriptions"));
+        assertThat(FieldSelection.tagSuffix(null, List.of("certificates", "prescriptions")),
+            is(FieldSelection.tagSuffix(null, List.of("prescriptions", "certificates"))));
+        assertThat(FieldSelection.tagSuffix(List.of("id"), List.of("certificates")), is("+id+expand:certificates"));
+    }
+}
@@ -0,0 +1,73 @@
+/********************************************************************************************************
+ * File:  TestHttpErrorResponse.java
+ * Course Materials CST 8277
+ * Teddy Yap
+ * (Original Author) Mike Norman
+ *
+ */
+package acmemedical.rest.resource;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class TestHttpErrorResponse {
+
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    static JsonNode parse(byte[] json) throws IOException {
+        return MAPPER.readTree(json);
+    }
+
+    @Test
+    public void test01_standard_status_has_its_reason_phrase() throws IOException {
+        JsonNode json = parse(HttpErrorResponse.toJson(404, null));
+        assertThat(json.get("status-code").asInt(), is(404));
+        assertThat(json.get("reason-phrase").asText(), is("Not Found"));
+        assertThat(json.size(), is(2));
+    }
+
+    @Test
+    public void test02_standard_json_is_rendered_once() {
+        byte[] unauthorized = HttpErrorResponse.toJson(401, null);
+        assertThat(HttpErrorResponse.toJson(401, null), is(sameInstance(unauthorized)));
+        assertThat(HttpErrorResponse.toJson(401, "Unauthorized"), is(sameInstance(unauthorized)));
+    }
+
+    @Test
+    public void test03_own_reason_phrase_is_kept() throws IOException {
+        byte[] standard = HttpErrorResponse.toJson(400, null);
+        byte[] own = HttpErrorResponse.toJson(400, "Paging requires after >= 0 and \"limit\" <= 100");
+        assertThat(own, is(not(sameInstance(standard))));
+        JsonNode json = parse(own);
+        assertThat(json.get("status-code").asInt(), is(400));
+        assertThat(json.get("reason-phrase").asText(), is("Paging requires after >= 0 and \"limit\" <= 100"));
+    }
+
+    @Test
+    public void test04_unknown_status_falls_back_to_its_class() throws IOException {
+        JsonNode json = parse(HttpErrorResponse.toJson(499, null));
+        assertThat(json.get("status-code").asInt(), is(499));
+        assertThat(json.get("reason-phrase").asText(), is("Client Error"));
+        assertThat(parse(HttpErrorResponse.toJson(599, null)).get("reason-phrase").asText(), is("Server Error"));
+        assertThat(parse(HttpErrorResponse.toJson(999, null)).get("reason-phrase").asText(), is(""));
+        assertThat(parse(HttpErrorResponse.toJson(-1, null)).get("reason-phrase").asText(), is(""));
+    }
+
+    @Test
+    public void test05_same_json_as_serializing_the_response() throws IOException {
+        byte[] serialized = MAPPER.writeValueAsBytes(new HttpErrorResponse(503, "Service Unavailable"));
+        assertThat(parse(HttpErrorResponse.toJson(503, null)), is(parse(serialized)));
+    }
+}
@@ -0,0 +1,101 @@
+/********************************************************************************************************
+ * File:  TestBearerTokenService.java
+ * Course Materials CST 8277
+ * Teddy Yap
+ * (Original Author) Mike Norman
+ *
+ */
+package acmemedical.security;
+
+import static jakarta.security.enterprise.identitystore.CredentialValidationResult.Status.INVALID;
+import static jakarta.security.enterprise.identitystore.CredentialValidationResult.Status.VALID;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsIterableContainingInAnyOrder.containsInAnyOrder;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.Set;
+
+import jakarta.security.enterprise.identitystore.CredentialValidationResult;
+
+import org.glassfish.soteria.WrappingCallerPrincipal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class TestBearerTokenService {
+
+    static final String SIGNING_KEY = Base64.getEncoder().encodeToString(
+        "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.US_ASCII));
+    static final AuthenticatedUser USER = new AuthenticatedUser(7, "cst8277:user", Set.of("USER_ROLE", "ADMIN_ROLE"), 3);
+
+    BearerTokenService tokens;
+
+    static BearerTokenService newService(Optional<String> signingKey, long ttlSeconds) {
+        BearerTokenService service = new BearerTokenService();
+        service.configuredSigningKey = signingKey;
+        service.ttlSeconds = ttlSeconds;
+        service.init();
+        return service;
+    }
+
+    @BeforeEach
+    public void setUp() {
+        tokens = newService(Optional.of(SIGNING_KEY), 60);
+    }
+
+    @Test
+    public void test01_issued_token_restores_the_caller() {
+        CredentialValidationResult result = tokens.validate(tokens.issue(USER));
+        assertThat(result.getStatus(), is(VALID));
+        assertThat(result.getCallerGroups(), containsInAnyOrder("USER_ROLE", "ADMIN_ROLE"));
+        AuthenticatedUser caller = (AuthenticatedUser) ((WrappingCallerPrincipal) result.getCallerPrincipal()).getWrapped();
+        assertThat(caller.getUserId(), is(7));
+        // the username may contain the field separator
+        assertThat(caller.getUsername(), is("cst8277:user"));
+        assertThat(caller.getPhysicianId(), is(3));
+    }
+
+    @Test
+    public void test02_token_of_another_key_is_invalid() {
+        BearerTokenService otherNode = newService(Optional.empty(), 60);
+        assertThat(tokens.validate(otherNode.issue(USER)).getStatus(), is(INVALID));
+        assertThat(newService(Optional.of(SIGNING_KEY), 60).validate(tokens.issue(USER)).getStatus(), is(VALID));
+    }
+
+    @Test
+    public void test03_tampered_payload_is_invalid() {
+        String token = tokens.issue(USER);
+        int dot = token.indexOf('.');
+        String payload = new String(Base64.getUrlDecoder().decode(token.substring(0, dot)), StandardCharsets.UTF_8);
+        String forged = payload.replace(":3:", ":4:");
+        String forgedToken = Base64.getUrlEncoder().withoutPadding().encodeToString(forged.getBytes(StandardCharsets.UTF_8))
+            + token.substring(dot);
+        assertThat(tokens.validate(forgedToken).getStatus(), is(INVALID));
+    }
+
+    @Test
+    public void test04_expired_token_is_invalid() {
+        BearerTokenService expiring = newService(Optional.of(SIGNING_KEY), 0);
+        assertThat(expiring.validate(expiring.issue(USER)).getStatus(), is(INVALID));
+        assertThat(tokens.validate(expiring.issue(USER)).getStatus(), is(INVALID));
+    }
+
+    @Test
+    public void test05_malformed_tokens_are_invalid() {
+        for (String token : new String[] {"", ".", "abc", "abc.", ".abc", "not base64!.abc", "abc.def"}) {
+            assertThat(token, tokens.validate(token).getStatus(), is(INVALID));
+        }
+    }
+
+    @Test
+    public void test06_short_signing_key_is_refused() {
+        String shortKey = Base64.getEncoder().encodeToString(new byte[16]);
+        assertThrows(IllegalStateException.class, () -> newService(Optional.of(shortKey), 60));
+    }
+}
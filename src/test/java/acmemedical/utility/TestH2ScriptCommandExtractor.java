@@ -0,0 +1,92 @@
+/********************************************************************************************************
+ * File:  TestH2ScriptCommandExtractor.java
+ * Course Materials CST 8277
+ * Teddy Yap
+ * (Original Author) Mike Norman
+ *
+ */
+package acmemedical.utility;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsArrayWithSize.arrayWithSize;
+
+import java.io.StringReader;
+
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class TestH2ScriptCommandExtractor {
+
+    static final String CREATE_MEDICAL_SCHOOL =
+        "CREATE TABLE IF NOT EXISTS `acmemedical`.`medical_school` (\n"
+        + "  `school_id` INT NOT NULL AUTO_INCREMENT,\n"
+        + "  `name` VARCHAR(100) NOT NULL,\n"
+        + "  `public` BIT(1) NOT NULL,\n"
+        + "  PRIMARY KEY (`school_id`),\n"
+        + "  UNIQUE INDEX `name_UNIQUE` (`name` ASC) VISIBLE,\n"
+        + "  INDEX `fk_medical_school_idx` (`school_id` ASC) INVISIBLE)";
+
+    @Test
+    public void test01_index_names_are_prefixed_with_their_table() {
+        String h2 = H2ScriptCommandExtractor.toH2(
+            "CREATE TABLE IF NOT EXISTS `security_role` (`role_id` INT NOT NULL, UNIQUE INDEX `name_UNIQUE` (`name` ASC))");
+        assertThat(h2, containsString("UNIQUE INDEX `security_role_name_UNIQUE` ("));
+        assertThat(H2ScriptCommandExtractor.toH2("create table medicine (id int, key drug_idx (drug_name))"),
+            containsString("key `medicine_drug_idx` ("));
+    }
+
+    @Test
+    public void test02_primary_and_foreign_keys_are_left_alone() {
+        String h2 = H2ScriptCommandExtractor.toH2(
+            "CREATE TABLE `medical_training` (`training_id` INT NOT NULL, PRIMARY KEY (`training_id`),\n"
+            + "  CONSTRAINT `fk_medical_training_medical_school`\n"
+            + "    FOREIGN KEY (`school_id`) REFERENCES `medical_school` (`school_id`))");
+        assertThat(h2, containsString("PRIMARY KEY (`training_id`)"));
+        assertThat(h2, containsString("CONSTRAINT `fk_medical_training_medical_school`"));
+        assertThat(h2, containsString("FOREIGN KEY (`school_id`) REFERENCES `medical_school` (`school_id`)"));
+    }
+
+    @Test
+    public void test03_bit_1_becomes_boolean() {
+        assertThat(H2ScriptCommandExtractor.toH2("ALTER TABLE physician ADD `retired` bit ( 1 ) NOT NULL"),
+            is("ALTER TABLE physician ADD `retired` BOOLEAN NOT NULL"));
+        assertThat(H2ScriptCommandExtractor.toH2("ALTER TABLE physician ADD `flags` BIT(8)"),
+            is("ALTER TABLE physician ADD `flags` BIT(8)"));
+    }
+
+    @Test
+    public void test04_index_visibility_is_dropped() {
+        String h2 = H2ScriptCommandExtractor.toH2(CREATE_MEDICAL_SCHOOL);
+        assertThat(h2, not(containsString("VISIBLE")));
+        assertThat(h2, containsString("UNIQUE INDEX `medical_school_name_UNIQUE` (`name` ASC),"));
+        assertThat(h2, containsString("INDEX `medical_school_fk_medical_school_idx` (`school_id` ASC))"));
+        assertThat(h2, containsString("`public` BOOLEAN NOT NULL"));
+    }
+
+    @Test
+    public void test05_schema_clauses() {
+        assertThat(H2ScriptCommandExtractor.toH2("CREATE SCHEMA IF NOT EXISTS `acmemedical` DEFAULT CHARACTER SET utf8mb4"),
+            is("CREATE SCHEMA IF NOT EXISTS `acmemedical`"));
+        assertThat(H2ScriptCommandExtractor.toH2("USE `acmemedical`"), is("SET SCHEMA `acmemedical`"));
+    }
+
+    @Test
+    public void test06_other_statements_are_unchanged() {
+        String insert = "INSERT INTO `medical_school` (`name`, `public`) VALUES ('Key West Medical School', 1)";
+        assertThat(H2ScriptCommandExtractor.toH2(insert), is(insert));
+    }
+
+    @Test
+    public void test07_every_command_of_a_script_is_rewritten() {
+        String[] commands = new H2ScriptCommandExtractor().extractCommands(new StringReader(
+            "USE `acmemedical`;\n" + CREATE_MEDICAL_SCHOOL + ";\n"));
+        assertThat(commands, is(arrayWithSize(2)));
+        assertThat(commands[0], is("SET SCHEMA `acmemedical`"));
+        assertThat(commands[1], containsString("`medical_school_name_UNIQUE`"));
+    }
+}
@@ -0,0 +1,71 @@
+/********************************************************************************************************
+ * File:  TestSqlStatementInspector.java
+ * Course Materials CST 8277
+ * Teddy Yap
+ * (Original Author) Mike Norman
+ *
+ */
+package acmemedical.utility;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsMapContaining.hasEntry;
+import static org.hamcrest.collection.IsMapWithSize.anEmptyMap;
+import static org.hamcrest.collection.IsMapWithSize.aMapWithSize;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class TestSqlStatementInspector {
+
+    @Test
+    public void test01_literals_become_placeholders() {
+        assertThat(SqlStatementInspector.shape("select * from physician where id = 42 and last_name = 'O''Brien'"),
+            is("select * from physician where id = ? and last_name = ?"));
+        assertThat(SqlStatementInspector.shape("update medicine set price = 12.50 where medicine_id = 7"),
+            is("update medicine set price = ? where medicine_id = ?"));
+    }
+
+    @Test
+    public void test02_aliases_with_digits_are_kept() {
+        assertThat(SqlStatementInspector.shape("select physician0_.id as id1_6_ from physician physician0_"),
+            is("select physician0_.id as id1_6_ from physician physician0_"));
+    }
+
+    @Test
+    public void test03_in_lists_of_any_length_have_one_shape() {
+        String one = SqlStatementInspector.shape("select * from prescription where physician_id in (?)");
+        String three = SqlStatementInspector.shape("select * from prescription where physician_id in ( ?, ?,? )");
+        String literals = SqlStatementInspector.shape("select * from prescription where physician_id in (1, 2, 3, 4)");
+        assertThat(one, is("select * from prescription where physician_id in (?)"));
+        assertThat(three, is(one));
+        assertThat(literals, is(one));
+    }
+
+    @Test
+    public void test04_comments_and_whitespace_are_dropped() {
+        assertThat(SqlStatementInspector.shape("/* load acmemedical.entity.Physician */ select *\n\tfrom   physician  "),
+            is("select * from physician"));
+    }
+
+    @Test
+    public void test05_tally_only_between_begin_and_end() {
+        SqlStatementInspector inspector = new SqlStatementInspector();
+        String sql = "select * from medicine where medicine_id = ?";
+        assertThat(inspector.inspect(sql), is(sql));
+        assertThat(SqlStatementInspector.end(), is(anEmptyMap()));
+
+        SqlStatementInspector.begin();
+        inspector.inspect("select * from medicine where medicine_id = 1");
+        inspector.inspect("select * from medicine where medicine_id = 2");
+        inspector.inspect("select * from patient where patient_id = 1");
+        Map<String, Integer> shapes = SqlStatementInspector.end();
+        assertThat(shapes, is(aMapWithSize(2)));
+        assertThat(shapes, hasEntry(sql, 2));
+        assertThat(SqlStatementInspector.end(), is(anEmptyMap()));
+    }
+}